@@ -0,0 +1,167 @@
+package MLP;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Noyaux SIMD utilisant l'API Vector (jdk.incubator.vector)
+ *
+ * Chargée par réflexion par Noyaux : ne compile et ne s'exécute qu'avec
+ * --add-modules jdk.incubator.vector, d'où sa racine de sources à part
+ * (voir Noyaux). Les vecteurs ont la taille préférée
+ * du processeur ; la fin des tableaux (moins d'un vecteur) est traitée par
+ * les boucles scalaires.
+ */
+final class NoyauxVector extends Noyaux {
+    private static final VectorSpecies<Double> D = DoubleVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Float> F = FloatVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> I = IntVector.SPECIES_PREFERRED;
+
+    /**
+     * Octets chargés par itération : autant que d'entiers dans un vecteur
+     */
+    private static final VectorSpecies<Byte> B =
+            VectorSpecies.of(byte.class, VectorShape.forBitSize(I.length() * Byte.SIZE));
+
+    /**
+     * Itérations avant de vider les sommes entières dans un long : chaque
+     * carré vaut au plus 255² et la somme de toutes les voies doit rester
+     * un int
+     */
+    private static final int ITERATIONS_SANS_DEBORDEMENT = Integer.MAX_VALUE / (255 * 255 * I.length());
+
+    @Override
+    String nom() {
+        return "vector (" + D.vectorBitSize() + " bits)";
+    }
+
+    @Override
+    double produit(double[] a, int offA, double[] b, int offB, int n) {
+        DoubleVector acc = DoubleVector.zero(D);
+        int i = 0;
+        for (int bound = D.loopBound(n); i < bound; i += D.length()) {
+            DoubleVector va = DoubleVector.fromArray(D, a, offA + i);
+            acc = va.fma(DoubleVector.fromArray(D, b, offB + i), acc);
+        }
+        double sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < n; i++)
+            sum += a[offA + i] * b[offB + i];
+        return sum;
+    }
+
+    @Override
+    float produit(float[] a, int offA, float[] b, int offB, int n) {
+        FloatVector acc = FloatVector.zero(F);
+        int i = 0;
+        for (int bound = F.loopBound(n); i < bound; i += F.length()) {
+            FloatVector va = FloatVector.fromArray(F, a, offA + i);
+            acc = va.fma(FloatVector.fromArray(F, b, offB + i), acc);
+        }
+        float sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < n; i++)
+            sum += a[offA + i] * b[offB + i];
+        return sum;
+    }
+
+    @Override
+    void axpy(double alpha, double[] x, int offX, double[] y, int offY, int n) {
+        DoubleVector valpha = DoubleVector.broadcast(D, alpha);
+        int i = 0;
+        for (int bound = D.loopBound(n); i < bound; i += D.length()) {
+            DoubleVector vx = DoubleVector.fromArray(D, x, offX + i);
+            vx.fma(valpha, DoubleVector.fromArray(D, y, offY + i)).intoArray(y, offY + i);
+        }
+        for (; i < n; i++)
+            y[offY + i] += alpha * x[offX + i];
+    }
+
+    @Override
+    void axpy(float alpha, float[] x, int offX, float[] y, int offY, int n) {
+        FloatVector valpha = FloatVector.broadcast(F, alpha);
+        int i = 0;
+        for (int bound = F.loopBound(n); i < bound; i += F.length()) {
+            FloatVector vx = FloatVector.fromArray(F, x, offX + i);
+            vx.fma(valpha, FloatVector.fromArray(F, y, offY + i)).intoArray(y, offY + i);
+        }
+        for (; i < n; i++)
+            y[offY + i] += alpha * x[offX + i];
+    }
+
+    @Override
+    long distanceCarree(byte[] a, int offA, byte[] b, int offB, int n) {
+        IntVector acc = IntVector.zero(I);
+        long sum = 0;
+        int iterations = 0;
+        int i = 0;
+        for (int bound = B.loopBound(n); i < bound; i += B.length()) {
+            IntVector va = (IntVector) ByteVector.fromArray(B, a, offA + i)
+                    .convertShape(VectorOperators.B2I, I, 0);
+            IntVector vb = (IntVector) ByteVector.fromArray(B, b, offB + i)
+                    .convertShape(VectorOperators.B2I, I, 0);
+            IntVector diff = va.and(0xFF).sub(vb.and(0xFF));
+            acc = acc.add(diff.mul(diff));
+            if (++iterations == ITERATIONS_SANS_DEBORDEMENT) {
+                sum += acc.reduceLanesToLong(VectorOperators.ADD);
+                acc = IntVector.zero(I);
+                iterations = 0;
+            }
+        }
+        sum += acc.reduceLanesToLong(VectorOperators.ADD);
+        for (; i < n; i++) {
+            int diff = (a[offA + i] & 0xFF) - (b[offB + i] & 0xFF);
+            sum += diff * diff;
+        }
+        return sum;
+    }
+
+    @Override
+    void produitsOctets4(int[] a, int offA, byte[] b, int offB, int n, long[] out, int outOff) {
+        // la ligne d'octets est convertie une fois pour les 4 produits
+        IntVector acc0 = IntVector.zero(I);
+        IntVector acc1 = IntVector.zero(I);
+        IntVector acc2 = IntVector.zero(I);
+        IntVector acc3 = IntVector.zero(I);
+        long s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int iterations = 0;
+        int i = 0;
+        for (int bound = B.loopBound(n); i < bound; i += B.length()) {
+            IntVector vb = ((IntVector) ByteVector.fromArray(B, b, offB + i)
+                    .convertShape(VectorOperators.B2I, I, 0)).and(0xFF);
+            acc0 = IntVector.fromArray(I, a, offA + i).mul(vb).add(acc0);
+            acc1 = IntVector.fromArray(I, a, offA + n + i).mul(vb).add(acc1);
+            acc2 = IntVector.fromArray(I, a, offA + 2 * n + i).mul(vb).add(acc2);
+            acc3 = IntVector.fromArray(I, a, offA + 3 * n + i).mul(vb).add(acc3);
+            if (++iterations == ITERATIONS_SANS_DEBORDEMENT) {
+                s0 += acc0.reduceLanesToLong(VectorOperators.ADD);
+                s1 += acc1.reduceLanesToLong(VectorOperators.ADD);
+                s2 += acc2.reduceLanesToLong(VectorOperators.ADD);
+                s3 += acc3.reduceLanesToLong(VectorOperators.ADD);
+                acc0 = IntVector.zero(I);
+                acc1 = IntVector.zero(I);
+                acc2 = IntVector.zero(I);
+                acc3 = IntVector.zero(I);
+                iterations = 0;
+            }
+        }
+        s0 += acc0.reduceLanesToLong(VectorOperators.ADD);
+        s1 += acc1.reduceLanesToLong(VectorOperators.ADD);
+        s2 += acc2.reduceLanesToLong(VectorOperators.ADD);
+        s3 += acc3.reduceLanesToLong(VectorOperators.ADD);
+        for (; i < n; i++) {
+            int v = b[offB + i] & 0xFF;
+            s0 += a[offA + i] * v;
+            s1 += a[offA + n + i] * v;
+            s2 += a[offA + 2 * n + i] * v;
+            s3 += a[offA + 3 * n + i] * v;
+        }
+        out[outOff] = s0;
+        out[outOff + 1] = s1;
+        out[outOff + 2] = s2;
+        out[outOff + 3] = s3;
+    }
+}
@@ -0,0 +1,101 @@
+package MLP;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Adam (moments du premier et du second ordre avec correction de biais) :
+ * m = b1 * m + (1 - b1) * d, s = b2 * s + (1 - b2) * d²,
+ * puis p += lr_t * m / (sqrt(s) + eps) avec
+ * lr_t = lr * sqrt(1 - b2^t) / (1 - b1^t) à l'étape t.
+ *
+ * Le taux d'apprentissage s'utilise autour de 0.001 (et non 0.5 comme pour
+ * SGD avec Sigmoid).
+ */
+public class Adam extends Optimizer {
+    private final double beta1;
+    private final double beta2;
+    private final double epsilon;
+    private double[][] moments1;
+    private double[][] moments2;
+    private long etape;
+
+    /**
+     * b1 = 0.9, b2 = 0.999, eps = 1e-8
+     */
+    public Adam() {
+        this(0.9, 0.999, 1e-8);
+    }
+
+    public Adam(double beta1, double beta2, double epsilon) {
+        if (beta1 < 0.0 || beta1 >= 1.0 || beta2 < 0.0 || beta2 >= 1.0 || epsilon <= 0.0)
+            throw new IllegalArgumentException("parametres d'Adam invalides");
+        this.beta1 = beta1;
+        this.beta2 = beta2;
+        this.epsilon = epsilon;
+    }
+
+    @Override
+    void initialiser(int[] tailles) {
+        moments1 = etatNul(tailles);
+        moments2 = etatNul(tailles);
+        etape = 0;
+    }
+
+    @Override
+    void ecrireEtat(DataOutputStream out) throws IOException {
+        out.writeLong(etape);
+        ecrire(out, moments1);
+        ecrire(out, moments2);
+    }
+
+    @Override
+    void lireEtat(DataInputStream in) throws IOException {
+        etape = in.readLong();
+        lire(in, moments1);
+        lire(in, moments2);
+    }
+
+    @Override
+    void debutEtape(double learningRate) {
+        etape++;
+        pas = learningRate * Math.sqrt(1.0 - Math.pow(beta2, etape)) / (1.0 - Math.pow(beta1, etape));
+    }
+
+    @Override
+    void appliquer(int slot, double[] params, int off, double[] directions, int dOff, double echelle, int n) {
+        double[] m = moments1[slot];
+        double[] s = moments2[slot];
+        for (int i = 0; i < n; i++) {
+            double d = echelle * directions[dOff + i];
+            m[off + i] = beta1 * m[off + i] + (1.0 - beta1) * d;
+            s[off + i] = beta2 * s[off + i] + (1.0 - beta2) * d * d;
+            params[off + i] += pas * m[off + i] / (Math.sqrt(s[off + i]) + epsilon);
+        }
+    }
+
+    @Override
+    void appliquer(int slot, float[] params, int off, float[] directions, int dOff, double echelle, int n) {
+        double[] m = moments1[slot];
+        double[] s = moments2[slot];
+        for (int i = 0; i < n; i++) {
+            double d = echelle * directions[dOff + i];
+            m[off + i] = beta1 * m[off + i] + (1.0 - beta1) * d;
+            s[off + i] = beta2 * s[off + i] + (1.0 - beta2) * d * d;
+            params[off + i] += (float) (pas * m[off + i] / (Math.sqrt(s[off + i]) + epsilon));
+        }
+    }
+
+    @Override
+    void appliquer(int slot, float[] params, int off, double[] directions, int dOff, double echelle, int n) {
+        double[] m = moments1[slot];
+        double[] s = moments2[slot];
+        for (int i = 0; i < n; i++) {
+            double d = echelle * directions[dOff + i];
+            m[off + i] = beta1 * m[off + i] + (1.0 - beta1) * d;
+            s[off + i] = beta2 * s[off + i] + (1.0 - beta2) * d * d;
+            params[off + i] += (float) (pas * m[off + i] / (Math.sqrt(s[off + i]) + epsilon));
+        }
+    }
+}
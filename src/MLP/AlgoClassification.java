@@ -1,5 +1,7 @@
 package MLP;
 
+import java.util.stream.IntStream;
+
 /**
  * Classe abstraite pour les algorithmes de classification
  */
@@ -17,4 +19,20 @@ public abstract class AlgoClassification {
      * @return l'étiquette prédite (0-9)
      */
     public abstract int predire(Imagette img);
+
+    /**
+     * Prédit les étiquettes d'un lot d'imagettes
+     *
+     * Par défaut, les imagettes sont réparties entre les coeurs disponibles :
+     * predire doit alors pouvoir être appelée par plusieurs threads en même
+     * temps. Les sous-classes peuvent fournir un calcul par lot plus rapide.
+     *
+     * @param imgs les imagettes à classifier
+     * @return l'étiquette prédite pour chaque imagette, dans le même ordre
+     */
+    public int[] predireLot(Imagette[] imgs) {
+        int[] predictions = new int[imgs.length];
+        IntStream.range(0, imgs.length).parallel().forEach(i -> predictions[i] = predire(imgs[i]));
+        return predictions;
+    }
 }
@@ -0,0 +1,71 @@
+package MLP;
+
+/**
+ * Zone de travail d'un apprentissage par lots
+ *
+ * Contient, pour un lot d'au plus capacity exemples, les valeurs et Delta de
+ * chaque couche (une ligne par exemple) ainsi que les gradients accumulés
+ * sur le lot. Les tableaux sont alloués une fois et réutilisés à chaque lot.
+ */
+class BatchWorkspace {
+    final int capacity;
+
+    /**
+     * values[k][b * taille + i] : valeur du neurone i de la couche k pour
+     * l'exemple b du lot
+     */
+    final double[][] values;
+    final double[][] deltas;
+
+    /**
+     * Valeurs et Delta en simple précision (MLPFloat), null sinon. Seule la
+     * couche de sortie de values est alors allouée, pour rendre les sorties
+     * en double.
+     */
+    final float[][] valuesF;
+    final float[][] deltasF;
+
+    /**
+     * Gradients accumulés, même disposition que MLP.fWeights et MLP.fBiases
+     */
+    final double[][] weightGrads;
+    final double[][] biasGrads;
+
+    /**
+     * Nombre d'exemples bien classés lors du dernier calcul de gradients
+     */
+    int correct;
+
+    BatchWorkspace(int[] sizes, int capacity) {
+        this(sizes, capacity, false);
+    }
+
+    /**
+     * @param simplePrecision valeurs et Delta en float (les gradients restent
+     *                        accumulés en double)
+     */
+    BatchWorkspace(int[] sizes, int capacity, boolean simplePrecision) {
+        int last = sizes.length - 1;
+        this.capacity = capacity;
+        values = new double[sizes.length][];
+        deltas = new double[sizes.length][];
+        valuesF = simplePrecision ? new float[sizes.length][] : null;
+        deltasF = simplePrecision ? new float[sizes.length][] : null;
+        weightGrads = new double[sizes.length][];
+        biasGrads = new double[sizes.length][];
+        for (int k = 0; k < sizes.length; k++) {
+            int prev = (k != 0) ? sizes[k - 1] : 0;
+            if (simplePrecision) {
+                valuesF[k] = new float[capacity * sizes[k]];
+                deltasF[k] = new float[capacity * sizes[k]];
+                if (k == last)
+                    values[k] = new double[capacity * sizes[k]];
+            } else {
+                values[k] = new double[capacity * sizes[k]];
+                deltas[k] = new double[capacity * sizes[k]];
+            }
+            weightGrads[k] = new double[sizes[k] * prev];
+            biasGrads[k] = new double[sizes[k]];
+        }
+    }
+}
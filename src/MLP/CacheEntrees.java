@@ -0,0 +1,80 @@
+package MLP;
+
+import java.util.stream.IntStream;
+
+/**
+ * Entrées normalisées d'un ensemble d'imagettes, calculées une seule fois
+ *
+ * Chaque imagette est convertie en vecteur de pixels / 255 stocké en float
+ * dans un unique tableau contigu (une ligne par imagette), réutilisé à chaque
+ * époque et à chaque évaluation. Si l'ensemble dépasse la mémoire autorisée,
+ * seules les premières imagettes sont gardées ; les autres sont normalisées
+ * à la volée.
+ */
+class CacheEntrees {
+    private final Imagette[] images;
+    private final int inputSize;
+    private final int nbEnCache;
+    private final float[] valeurs;
+
+    /**
+     * @param images    imagettes à mettre en cache
+     * @param inputSize taille des vecteurs d'entrée
+     * @param maxOctets mémoire maximale occupée par le cache
+     */
+    CacheEntrees(Imagette[] images, int inputSize, long maxOctets) {
+        this.images = images;
+        this.inputSize = inputSize;
+        this.nbEnCache = (int) Math.min(images.length, maxOctets / (4L * inputSize));
+        this.valeurs = new float[nbEnCache * inputSize];
+
+        IntStream.range(0, nbEnCache).parallel().forEach(idx -> {
+            Imagette img = images[idx];
+            byte[] pixels = img.getDonnees();
+            int offset = img.getOffset();
+            int pos = idx * inputSize;
+            for (int i = 0; i < inputSize; i++) {
+                valeurs[pos + i] = (pixels[offset + i] & 0xFF) / 255.0f;
+            }
+        });
+    }
+
+    /**
+     * @return true si le cache a été construit pour ce tableau d'imagettes
+     */
+    boolean concerne(Imagette[] data) {
+        return images == data;
+    }
+
+    /**
+     * Copie l'entrée normalisée de l'imagette idx dans input
+     *
+     * @return input
+     */
+    double[] lire(int idx, double[] input) {
+        if (idx >= nbEnCache) {
+            return normaliser(images[idx], input);
+        }
+        int pos = idx * inputSize;
+        for (int i = 0; i < inputSize; i++) {
+            input[i] = valeurs[pos + i];
+        }
+        return input;
+    }
+
+    /**
+     * Normalise une imagette (pixels / 255, arrondis en float comme dans le
+     * cache) dans input
+     *
+     * @return input
+     */
+    static double[] normaliser(Imagette img, double[] input) {
+        byte[] pixels = img.getDonnees();
+        int offset = img.getOffset();
+        int n = img.getLignes() * img.getColonnes();
+        for (int i = 0; i < n; i++) {
+            input[i] = (pixels[offset + i] & 0xFF) / 255.0f;
+        }
+        return input;
+    }
+}
@@ -1,11 +1,31 @@
 package MLP;
 
-import java.io.DataInputStream;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
 
 public class ChargementMNIST {
 
+    /**
+     * magic numbers des fichiers IDX d'images et de labels
+     */
+    public static final int MAGIC_IMAGES = 2051;
+    public static final int MAGIC_LABELS = 2049;
+
+    /**
+     * nombre d'imagettes copiees par paquet lors du chargement
+     */
+    private static final int IMAGES_PAR_PAQUET = 4096;
+
+    /**
+     * dernier pourcentage affiche par la barre de progression
+     */
+    private int dernierPourcentage = -1;
+
     /**
      * donne les noms de fichier, retourne un tableau d'imagettes
      * @param imageFile nom du fichier avec imagettes
@@ -15,36 +35,50 @@ public class ChargementMNIST {
      * @throws IOException probleme de lecture
      */
     public Imagette[] charger(String imageFile, String labelFile, int max) throws IOException {
-        // ouverture du fichier image
-        DataInputStream di = new DataInputStream(new FileInputStream(imageFile));
-        // ouverture du fichier label
-        DataInputStream dLabel = new DataInputStream(new FileInputStream(labelFile));
+        return chargerDataset(imageFile, labelFile, max).getImagettes();
+    }
+
+    /**
+     * donne les noms de fichier, retourne l'ensemble des imagettes stocke en
+     * colonnes (un octet par pixel)
+     * @param imageFile nom du fichier avec imagettes
+     * @param labelFile nom du fichier avec les labels
+     * @param max nombre de valeurs maximales a charger
+     * @return ensemble des imagettes avec leurs labels
+     * @throws IOException probleme de lecture
+     */
+    public Dataset chargerDataset(String imageFile, String labelFile, int max) throws IOException {
+        // ##########################################
+        // ouverture des fichiers par projection en memoire
+
+        ByteBuffer images = projeter(imageFile);
+        ByteBuffer labels = projeter(labelFile);
 
         // ##########################################
         // ouverture des images
 
         // lecture donnees initiales
-        int magicNumber = di.readInt();
-        if (magicNumber != 2051)
+        int magicNumber = images.getInt();
+        if (magicNumber != MAGIC_IMAGES)
             throw new Error("pas le bon fichier = magic number" + magicNumber);
 
         // lecture nb image
-        int nbImage = di.readInt();
+        int nbImage = images.getInt();
 
         // lecture taille des imagettes
-        int lignes = di.readInt();
-        int cols = di.readInt();
+        int lignes = images.getInt();
+        int cols = images.getInt();
 
         // ##########################################
         // ouverture des labels
 
         // lecture donnees initiales
-        int magicNumberLabel = dLabel.readInt();
-        if (magicNumberLabel != 2049)
-            throw new Error("pas le bon fichier = magic number" + magicNumber);
+        int magicNumberLabel = labels.getInt();
+        if (magicNumberLabel != MAGIC_LABELS)
+            throw new Error("pas le bon fichier = magic number" + magicNumberLabel);
 
         // lecture nb label
-        int nbLabel = dLabel.readInt();
+        int nbLabel = labels.getInt();
 
         // si different= erreur
         if (nbLabel != nbImage)
@@ -58,51 +92,91 @@ public class ChargementMNIST {
             nbImage = max;
         }
 
-        // construction du tableau imagette
-        Imagette[] tab = new Imagette[nbImage];
+        int taillePixels = lignes * cols;
+        if (images.remaining() < (long) nbImage * taillePixels || labels.remaining() < nbImage)
+            throw new Error("fichier tronque");
 
-        // pour chaque imagette
+        // labels : une copie en bloc puis conversion en entiers
+        byte[] octetsLabels = new byte[nbImage];
+        labels.get(octetsLabels);
+        int[] tabLabels = new int[nbImage];
         for (int idx = 0; idx < nbImage; idx++) {
-            // lecture du label avec readUnsignedByte
-            int label = dLabel.readUnsignedByte();
-
-            // creation imagette
-            Imagette imagette = new Imagette(lignes, cols, label);
-
-            // construction imagette pixel par pixel (avec readUnsignedByte)
-            for (int i = 0; i < lignes; i++) {
-                for (int j = 0; j < cols; j++) {
-                    int valeur = di.readUnsignedByte();
-                    imagette.modifierValeur(i, j, valeur);
-                }
-            }
-
-            // ajout au tableau d'imagettes
-            tab[idx] = imagette;
-
-            // Affichage de la barre de progression
-            int percent = (int)(((idx + 1) * 100.0) / nbImage);
-            int barLength = 40;
-            int filled = (int)(barLength * (idx + 1) / (double)nbImage);
-            StringBuilder bar = new StringBuilder();
-            bar.append("[");
-            for (int b = 0; b < barLength; b++) {
-                if (b < filled) bar.append("#");
-                else bar.append("-");
-            }
-            bar.append("] ");
-            bar.append(percent).append("%");
-            System.out.print("\rChargement des images : " + bar.toString());
+            tabLabels[idx] = octetsLabels[idx] & 0xFF;
         }
+
+        // pixels : copies en bloc depuis la zone projetee, par paquets
+        // d'imagettes traites en parallele
+        byte[] pixels = new byte[nbImage * taillePixels];
+        ByteBuffer zonePixels = images.slice();
+        int nbPaquets = (nbImage + IMAGES_PAR_PAQUET - 1) / IMAGES_PAR_PAQUET;
+        AtomicInteger charges = new AtomicInteger();
+        dernierPourcentage = -1;
+        int total = nbImage;
+        IntStream.range(0, nbPaquets).parallel().forEach(paquet -> {
+            int debut = paquet * IMAGES_PAR_PAQUET;
+            int fin = Math.min(debut + IMAGES_PAR_PAQUET, total);
+            ByteBuffer source = zonePixels.duplicate();
+            source.position(debut * taillePixels);
+            source.get(pixels, debut * taillePixels, (fin - debut) * taillePixels);
+            afficherProgression(charges.addAndGet(fin - debut), total);
+        });
         System.out.println(); // Saut de ligne après la barre
 
-        // fermeture fichier image
-        // fermeture fichier label
-        di.close();
-        dLabel.close();
+        // retourne l'ensemble des imagettes
+        return new Dataset(pixels, tabLabels, lignes, cols);
+    }
+
+    /**
+     * projette un fichier IDX d'images en memoire et donne acces a ses pixels
+     * sans les copier
+     * @param imageFile nom du fichier avec imagettes
+     * @return zone en lecture seule contenant les pixels de toutes les
+     *         imagettes, a la suite (lignes * colonnes octets par imagette)
+     * @throws IOException probleme de lecture
+     */
+    public ByteBuffer projeterPixels(String imageFile) throws IOException {
+        ByteBuffer images = projeter(imageFile);
+        int magicNumber = images.getInt();
+        if (magicNumber != MAGIC_IMAGES)
+            throw new Error("pas le bon fichier = magic number" + magicNumber);
+        // nb image, lignes, colonnes
+        images.position(16);
+        return images.slice();
+    }
+
+    /**
+     * projette un fichier entier en memoire, en lecture seule
+     * (taille limitee a 2 Go par fichier)
+     */
+    private static ByteBuffer projeter(String fichier) throws IOException {
+        try (FileChannel canal = FileChannel.open(Path.of(fichier), StandardOpenOption.READ)) {
+            // la projection reste valide apres la fermeture du canal
+            return canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+        }
+    }
 
-        // retourne tableau imagettes
-        return tab;
+    /**
+     * affiche la barre de progression, seulement quand le pourcentage change
+     * @param charges nombre d'imagettes deja chargees
+     * @param total nombre total d'imagettes
+     */
+    private synchronized void afficherProgression(int charges, int total) {
+        int percent = (int) ((charges * 100.0) / total);
+        if (percent == dernierPourcentage)
+            return;
+        dernierPourcentage = percent;
+
+        int barLength = 40;
+        int filled = (int) (barLength * charges / (double) total);
+        StringBuilder bar = new StringBuilder();
+        bar.append("[");
+        for (int b = 0; b < barLength; b++) {
+            if (b < filled) bar.append("#");
+            else bar.append("-");
+        }
+        bar.append("] ");
+        bar.append(percent).append("%");
+        System.out.print("\rChargement des images : " + bar.toString());
     }
 
 
@@ -0,0 +1,134 @@
+package MLP;
+
+/**
+ * Ensemble d'imagettes stocke en colonnes
+ *
+ * Tous les pixels sont dans un seul tableau d'octets (un octet par pixel,
+ * imagette apres imagette, ligne par ligne) et les etiquettes dans un tableau
+ * d'entiers. Les Imagette fournies par get() et getImagettes() sont des vues
+ * sur ces tableaux : elles ne copient pas les pixels.
+ */
+public class Dataset {
+
+    /**
+     * pixels de toutes les imagettes
+     */
+    private final byte[] pixels;
+
+    /**
+     * etiquette de chaque imagette
+     */
+    private final int[] labels;
+
+    /**
+     * taille des imagettes
+     */
+    private final int lignes;
+    private final int colonnes;
+
+    /**
+     * vues sur chaque imagette (creees a la demande)
+     */
+    private Imagette[] imagettes;
+
+    /**
+     * constructeur
+     * construit un ensemble vide (pixels a 0) de la bonne taille
+     *
+     * @param nbImages nombre d'imagettes
+     * @param lignes   nombre de lignes d'une imagette
+     * @param colonnes nombre de colonnes d'une imagette
+     */
+    public Dataset(int nbImages, int lignes, int colonnes) {
+        this(new byte[nbImages * lignes * colonnes], new int[nbImages], lignes, colonnes);
+    }
+
+    /**
+     * constructeur a partir de tableaux existants (sans copie)
+     *
+     * @param pixels   pixels de toutes les imagettes
+     * @param labels   etiquette de chaque imagette
+     * @param lignes   nombre de lignes d'une imagette
+     * @param colonnes nombre de colonnes d'une imagette
+     */
+    public Dataset(byte[] pixels, int[] labels, int lignes, int colonnes) {
+        if (pixels.length != labels.length * lignes * colonnes)
+            throw new IllegalArgumentException("pas le meme nombre de pixels et d'etiquettes");
+        this.pixels = pixels;
+        this.labels = labels;
+        this.lignes = lignes;
+        this.colonnes = colonnes;
+    }
+
+    /**
+     * @return nombre d'imagettes
+     */
+    public int taille() {
+        return labels.length;
+    }
+
+    public int getLignes() {
+        return lignes;
+    }
+
+    public int getColonnes() {
+        return colonnes;
+    }
+
+    /**
+     * @param idx numero de l'imagette
+     * @return etiquette de l'imagette
+     */
+    public int getLabel(int idx) {
+        return labels[idx];
+    }
+
+    /**
+     * modifie l'etiquette d'une imagette
+     * (a faire avant de recuperer les vues, qui gardent leur etiquette)
+     *
+     * @param idx   numero de l'imagette
+     * @param label nouvelle etiquette
+     */
+    public void modifierLabel(int idx, int label) {
+        labels[idx] = label;
+    }
+
+    /**
+     * @param idx   numero de l'imagette
+     * @param pixel numero du pixel (ligne * colonnes + colonne)
+     * @return couleur du pixel (0 a 255)
+     */
+    public int getPixel(int idx, int pixel) {
+        return pixels[idx * lignes * colonnes + pixel] & 0xFF;
+    }
+
+    /**
+     * @return tableau de tous les pixels (partage, pour les parcours sequentiels)
+     */
+    public byte[] getPixels() {
+        return pixels;
+    }
+
+    /**
+     * @param idx numero de l'imagette
+     * @return vue sur l'imagette
+     */
+    public Imagette get(int idx) {
+        return getImagettes()[idx];
+    }
+
+    /**
+     * @return vues sur toutes les imagettes, dans l'ordre
+     */
+    public synchronized Imagette[] getImagettes() {
+        if (imagettes == null) {
+            int taillePixels = lignes * colonnes;
+            imagettes = new Imagette[labels.length];
+            for (int idx = 0; idx < labels.length; idx++) {
+                imagettes[idx] = new Imagette(pixels, idx * taillePixels, lignes, colonnes, labels[idx]);
+            }
+        }
+        return imagettes;
+    }
+}
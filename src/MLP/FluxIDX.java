@@ -0,0 +1,234 @@
+package MLP;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Lecture en flux d'un ou plusieurs couples de fichiers IDX (images, labels)
+ *
+ * Les fichiers sont vus comme une suite de blocs de imagesParBloc imagettes.
+ * À chaque époque, l'ordre des blocs est mélangé ; les blocs sont chargés
+ * blocsEnMemoire par blocsEnMemoire dans un tampon dont les imagettes sont
+ * mélangées avant d'être fournies par lots. La mémoire occupée ne dépend que
+ * de imagesParBloc x blocsEnMemoire, pas de la taille des fichiers : on peut
+ * apprendre sur des corpus concaténés bien plus grands que le tas.
+ */
+public class FluxIDX implements SourceLots, AutoCloseable {
+    private final FileChannel[] images;
+    private final FileChannel[] labels;
+    private final int lignes;
+    private final int colonnes;
+    private final int taillePixels;
+    private final int taille;
+
+    /**
+     * Blocs : fichier, première imagette et nombre d'imagettes de chaque bloc
+     */
+    private final List<int[]> blocs = new ArrayList<>();
+
+    /**
+     * Tampon des blocs chargés
+     */
+    private final int blocsEnMemoire;
+    private final byte[] pixels;
+    private final int[] tamponLabels;
+    private final int[] ordre;
+    private int nbEnTampon;
+    private int positionTampon;
+
+    /**
+     * Ordre des blocs de l'époque courante
+     */
+    private List<int[]> blocsEpoque;
+    private int prochainBloc;
+    private Random random;
+
+    /**
+     * @param imageFiles     fichiers IDX d'images
+     * @param labelFiles     fichiers IDX de labels correspondants
+     * @param imagesParBloc  nombre d'imagettes consécutives lues ensemble
+     * @param blocsEnMemoire nombre de blocs gardés en mémoire et mélangés
+     *                       ensemble
+     * @throws IOException problème de lecture
+     */
+    public FluxIDX(String[] imageFiles, String[] labelFiles, int imagesParBloc, int blocsEnMemoire)
+            throws IOException {
+        if (imageFiles.length != labelFiles.length)
+            throw new IllegalArgumentException("autant de fichiers d'images que de labels");
+        if (imagesParBloc < 1 || blocsEnMemoire < 1)
+            throw new IllegalArgumentException("taille de bloc ou de tampon invalide");
+
+        images = new FileChannel[imageFiles.length];
+        labels = new FileChannel[labelFiles.length];
+        int l = -1;
+        int c = -1;
+        long total = 0;
+        try {
+            for (int f = 0; f < imageFiles.length; f++) {
+                images[f] = FileChannel.open(Path.of(imageFiles[f]), StandardOpenOption.READ);
+                labels[f] = FileChannel.open(Path.of(labelFiles[f]), StandardOpenOption.READ);
+
+                ByteBuffer entete = lire(images[f], 0, 16);
+                int magicNumber = entete.getInt();
+                if (magicNumber != ChargementMNIST.MAGIC_IMAGES)
+                    throw new Error("pas le bon fichier = magic number" + magicNumber);
+                int nbImage = entete.getInt();
+                int lignesFichier = entete.getInt();
+                int colonnesFichier = entete.getInt();
+                if (l >= 0 && (lignesFichier != l || colonnesFichier != c))
+                    throw new Error("imagettes de tailles differentes");
+                l = lignesFichier;
+                c = colonnesFichier;
+
+                entete = lire(labels[f], 0, 8);
+                int magicNumberLabel = entete.getInt();
+                if (magicNumberLabel != ChargementMNIST.MAGIC_LABELS)
+                    throw new Error("pas le bon fichier = magic number" + magicNumberLabel);
+                if (entete.getInt() != nbImage)
+                    throw new Error("pas le meme nombre d'elements");
+
+                for (int debut = 0; debut < nbImage; debut += imagesParBloc) {
+                    blocs.add(new int[] { f, debut, Math.min(imagesParBloc, nbImage - debut) });
+                }
+                total += nbImage;
+            }
+        } catch (IOException | RuntimeException | Error e) {
+            close();
+            throw e;
+        }
+        if (total > Integer.MAX_VALUE)
+            throw new Error("trop d'imagettes");
+
+        this.lignes = l;
+        this.colonnes = c;
+        this.taillePixels = l * c;
+        this.taille = (int) total;
+        this.blocsEnMemoire = blocsEnMemoire;
+        this.pixels = new byte[blocsEnMemoire * imagesParBloc * taillePixels];
+        this.tamponLabels = new int[blocsEnMemoire * imagesParBloc];
+        this.ordre = new int[blocsEnMemoire * imagesParBloc];
+        this.blocsEpoque = blocs;
+    }
+
+    @Override
+    public int taille() {
+        return taille;
+    }
+
+    @Override
+    public int tailleEntree() {
+        return taillePixels;
+    }
+
+    public int getLignes() {
+        return lignes;
+    }
+
+    public int getColonnes() {
+        return colonnes;
+    }
+
+    @Override
+    public void nouvelleEpoque(Random random) {
+        this.random = random;
+        blocsEpoque = new ArrayList<>(blocs);
+        if (random != null) {
+            Collections.shuffle(blocsEpoque, random);
+        }
+        prochainBloc = 0;
+        nbEnTampon = 0;
+        positionTampon = 0;
+    }
+
+    @Override
+    public int lotSuivant(double[][] inputs, int[] lotLabels) throws IOException {
+        int count = 0;
+        while (count < inputs.length) {
+            if (positionTampon == nbEnTampon && !remplirTampon()) {
+                break;
+            }
+            int idx = ordre[positionTampon++];
+            int pos = idx * taillePixels;
+            double[] input = inputs[count];
+            for (int i = 0; i < taillePixels; i++) {
+                input[i] = (pixels[pos + i] & 0xFF) / 255.0f;
+            }
+            lotLabels[count] = tamponLabels[idx];
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Charge les blocsEnMemoire blocs suivants de l'époque dans le tampon et
+     * mélange leurs imagettes
+     *
+     * @return false si l'époque est terminée
+     */
+    private boolean remplirTampon() throws IOException {
+        nbEnTampon = 0;
+        positionTampon = 0;
+        for (int b = 0; b < blocsEnMemoire && prochainBloc < blocsEpoque.size(); b++) {
+            int[] bloc = blocsEpoque.get(prochainBloc++);
+            int f = bloc[0];
+            int debut = bloc[1];
+            int nb = bloc[2];
+
+            lireDans(images[f], 16 + (long) debut * taillePixels,
+                    ByteBuffer.wrap(pixels, nbEnTampon * taillePixels, nb * taillePixels));
+            ByteBuffer octetsLabels = lire(labels[f], 8 + debut, nb);
+            for (int i = 0; i < nb; i++) {
+                tamponLabels[nbEnTampon + i] = octetsLabels.get(i) & 0xFF;
+            }
+            nbEnTampon += nb;
+        }
+
+        for (int i = 0; i < nbEnTampon; i++) {
+            ordre[i] = i;
+        }
+        if (random != null) {
+            for (int i = nbEnTampon - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int tmp = ordre[i];
+                ordre[i] = ordre[j];
+                ordre[j] = tmp;
+            }
+        }
+        return nbEnTampon > 0;
+    }
+
+    private static ByteBuffer lire(FileChannel canal, long position, int taille) throws IOException {
+        ByteBuffer tampon = ByteBuffer.allocate(taille);
+        lireDans(canal, position, tampon);
+        tampon.flip();
+        return tampon;
+    }
+
+    private static void lireDans(FileChannel canal, long position, ByteBuffer tampon) throws IOException {
+        while (tampon.hasRemaining()) {
+            int lus = canal.read(tampon, position);
+            if (lus < 0)
+                throw new Error("fichier tronque");
+            position += lus;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (FileChannel canal : images) {
+            if (canal != null)
+                canal.close();
+        }
+        for (FileChannel canal : labels) {
+            if (canal != null)
+                canal.close();
+        }
+    }
+}
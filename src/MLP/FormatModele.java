@@ -0,0 +1,229 @@
+package MLP;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Format binaire des modèles MLP (version 1)
+ *
+ * Le fichier est en little-endian, l'ordre natif des processeurs courants :
+ * - entête : MAGIC, VERSION, précision (ordinal de Precision), nombre de
+ * couches, taille de chaque couche, taux d'apprentissage, softmax, puis pour
+ * chaque couche après l'entrée le nom de classe de sa fonction de transfert
+ * et son paramètre (alpha de LeakyReLU, 0 sinon) ;
+ * - bourrage jusqu'à un multiple de 8 octets ;
+ * - paramètres : poids puis biais de chaque couche, dans la disposition de
+ * MLP.fWeights et MLP.fBiases, en double ou en float selon la précision.
+ *
+ * Le chargement projette le fichier en mémoire et copie les paramètres par
+ * blocs entiers dans les tableaux du réseau, sans décodage valeur par valeur.
+ * L'état de l'optimiseur n'est pas enregistré : le réseau chargé utilise SGD.
+ */
+final class FormatModele {
+
+    /**
+     * "MLPF" en ASCII
+     */
+    static final int MAGIC = 0x4D4C5046;
+    static final int VERSION = 1;
+
+    private FormatModele() {
+    }
+
+    /**
+     * Enregistre l'architecture et les paramètres de mlp dans fichier
+     *
+     * @throws IllegalArgumentException une fonction de transfert ne peut pas
+     *                                  être recréée au chargement (pas de
+     *                                  constructeur public sans paramètre)
+     */
+    static void ecrire(MLP mlp, Path fichier) throws IOException {
+        ByteBuffer buffer = encoder(mlp);
+        try (FileChannel canal = FileChannel.open(fichier, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining())
+                canal.write(buffer);
+        }
+    }
+
+    /**
+     * @return le modèle encodé, prêt à être lu (position 0)
+     */
+    static ByteBuffer encoder(MLP mlp) {
+        int[] sizes = mlp.fSizes;
+        byte[][] noms = new byte[sizes.length][];
+        int entete = 4 * 4 + 4 * sizes.length + 8 + 1;
+        for (int k = 1; k < sizes.length; k++) {
+            TransferFunction fun = mlp.fTransferFunctions[k];
+            if (!(fun instanceof LeakyReLU)) {
+                try {
+                    fun.getClass().getConstructor();
+                } catch (NoSuchMethodException e) {
+                    throw new IllegalArgumentException("fonction de transfert non enregistrable : "
+                            + fun.getClass().getName());
+                }
+            }
+            noms[k] = fun.getClass().getName().getBytes(StandardCharsets.UTF_8);
+            entete += 2 + noms[k].length + 8;
+        }
+        int debutParametres = aligner(entete);
+
+        ByteBuffer buffer = ByteBuffer.allocate(debutParametres + mlp.tailleParametres())
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putInt(mlp.getPrecision().ordinal());
+        buffer.putInt(sizes.length);
+        for (int size : sizes)
+            buffer.putInt(size);
+        buffer.putDouble(mlp.getLearningRate());
+        buffer.put((byte) (mlp.isSoftmax() ? 1 : 0));
+        for (int k = 1; k < sizes.length; k++) {
+            TransferFunction fun = mlp.fTransferFunctions[k];
+            buffer.putShort((short) noms[k].length);
+            buffer.put(noms[k]);
+            buffer.putDouble(fun instanceof LeakyReLU ? ((LeakyReLU) fun).getAlpha() : 0.0);
+        }
+        buffer.position(debutParametres);
+        mlp.ecrireParametres(buffer);
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Recrée un réseau enregistré par ecrire
+     *
+     * @return un MLP, ou un MLPFloat pour un modèle en simple précision
+     * @throws IOException fichier illisible, ou qui n'est pas un modèle de
+     *                     cette version
+     */
+    static MLP lire(Path fichier) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel canal = FileChannel.open(fichier, StandardOpenOption.READ)) {
+            buffer = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+        }
+        return decoder(buffer, fichier.toString());
+    }
+
+    /**
+     * Recrée un réseau encodé dans buffer (de sa position jusqu'à sa limite)
+     *
+     * @param source nom de la source, pour les messages d'erreur
+     */
+    static MLP decoder(ByteBuffer buffer, String source) throws IOException {
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            if (buffer.getInt() != MAGIC)
+                throw new IOException("pas un modele MLP : " + source);
+            int version = buffer.getInt();
+            if (version != VERSION)
+                throw new IOException("version de modele non supportee : " + version);
+            Precision precision = Precision.values()[buffer.getInt()];
+            int nbCouches = buffer.getInt();
+            if (nbCouches < 2 || nbCouches > buffer.remaining() / 4)
+                throw new IOException("nombre de couches invalide : " + nbCouches);
+            int[] sizes = new int[nbCouches];
+            for (int k = 0; k < sizes.length; k++) {
+                sizes[k] = buffer.getInt();
+                if (sizes[k] < 1)
+                    throw new IOException("taille de couche invalide : " + sizes[k]);
+            }
+            double learningRate = buffer.getDouble();
+            boolean softmax = buffer.get() != 0;
+            TransferFunction[] funs = new TransferFunction[sizes.length - 1];
+            for (int k = 0; k < funs.length; k++) {
+                byte[] nom = new byte[buffer.getShort()];
+                buffer.get(nom);
+                funs[k] = fonction(new String(nom, StandardCharsets.UTF_8), buffer.getDouble());
+            }
+            buffer.position(aligner(buffer.position()));
+            // taille vérifiée avant de construire le réseau : un en-tête
+            // corrompu ne doit pas faire allouer des couches démesurées
+            if (buffer.remaining() != tailleParametres(sizes, precision, buffer.remaining()))
+                throw new IOException("taille de modele incoherente : " + source);
+
+            MLP mlp;
+            if (precision == Precision.DOUBLE) {
+                mlp = new MLP(sizes, learningRate, funs, true);
+            } else {
+                mlp = new MLPFloat(sizes, learningRate, funs, precision == Precision.FLOAT_ACCUMULATION_DOUBLE,
+                        false);
+            }
+            mlp.setSoftmax(softmax);
+            mlp.lireParametres(buffer);
+            return mlp;
+        } catch (java.nio.BufferUnderflowException | ArrayIndexOutOfBoundsException
+                | NegativeArraySizeException e) {
+            throw new IOException("modele tronque ou corrompu : " + source, e);
+        }
+    }
+
+    /**
+     * Taille en octets des poids et biais d'un réseau de couches sizes,
+     * calculée en long
+     *
+     * @return la taille, ou une valeur supérieure à max dès qu'elle le dépasse
+     */
+    private static long tailleParametres(int[] sizes, Precision precision, long max) {
+        int octets = precision == Precision.DOUBLE ? Double.BYTES : Float.BYTES;
+        long taille = 0;
+        for (int k = 1; k < sizes.length && taille <= max; k++)
+            taille += ((long) sizes[k - 1] * sizes[k] + sizes[k]) * octets;
+        return taille;
+    }
+
+    /**
+     * Fonction de transfert de nom de classe nom. La classe est vérifiée
+     * (une TransferFunction) sans être initialisée avant d'être instanciée :
+     * un fichier ne peut pas faire exécuter le code d'une autre classe.
+     *
+     * @param parametre alpha de LeakyReLU (ignoré pour les autres fonctions)
+     */
+    private static TransferFunction fonction(String nom, double parametre) throws IOException {
+        if (nom.equals(LeakyReLU.class.getName())) {
+            if (!(parametre > 0))
+                throw new IOException("parametre de LeakyReLU invalide : " + parametre);
+            return new LeakyReLU(parametre);
+        }
+        try {
+            Class<? extends TransferFunction> classe = Class
+                    .forName(nom, false, FormatModele.class.getClassLoader())
+                    .asSubclass(TransferFunction.class);
+            return classe.getConstructor().newInstance();
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new IOException("fonction de transfert non disponible : " + nom, e);
+        }
+    }
+
+    private static int aligner(int position) {
+        return (position + 7) & ~7;
+    }
+
+    /**
+     * Copie d'un bloc de valeurs, la position de buffer avance d'autant
+     */
+    static void ecrire(ByteBuffer buffer, double[] valeurs) {
+        buffer.asDoubleBuffer().put(valeurs);
+        buffer.position(buffer.position() + 8 * valeurs.length);
+    }
+
+    static void ecrire(ByteBuffer buffer, float[] valeurs) {
+        buffer.asFloatBuffer().put(valeurs);
+        buffer.position(buffer.position() + 4 * valeurs.length);
+    }
+
+    static void lire(ByteBuffer buffer, double[] valeurs) {
+        buffer.asDoubleBuffer().get(valeurs);
+        buffer.position(buffer.position() + 8 * valeurs.length);
+    }
+
+    static void lire(ByteBuffer buffer, float[] valeurs) {
+        buffer.asFloatBuffer().get(valeurs);
+        buffer.position(buffer.position() + 4 * valeurs.length);
+    }
+}
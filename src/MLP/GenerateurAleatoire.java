@@ -0,0 +1,92 @@
+package MLP;
+
+import java.util.Random;
+
+/**
+ * Générateur aléatoire de l'apprentissage, dont l'état tient dans des
+ * primitives (etat, gaussienneSuivante) : un point de reprise l'enregistre et
+ * le relit sans sérialisation Java.
+ *
+ * Même générateur congruentiel linéaire et même tirage des gaussiennes que
+ * java.util.Random : à graine égale, les tirages sont identiques. Contrairement
+ * à java.util.Random, il n'est pas prévu pour être partagé entre threads.
+ */
+@SuppressWarnings("serial") // jamais sérialisé : voir PointReprise
+final class GenerateurAleatoire extends Random {
+
+    private static final long MULTIPLICATEUR = 0x5DEECE66DL;
+    private static final long INCREMENT = 0xBL;
+    private static final long MASQUE = (1L << 48) - 1;
+
+    /**
+     * État du générateur (48 bits)
+     */
+    private long etat;
+
+    /**
+     * Seconde gaussienne du dernier tirage de nextGaussian, pas encore rendue
+     */
+    private boolean aGaussienneSuivante;
+    private double gaussienneSuivante;
+
+    GenerateurAleatoire() {
+        this(new Random().nextLong());
+    }
+
+    GenerateurAleatoire(long graine) {
+        // le constructeur de Random appelle setSeed
+        super(graine);
+    }
+
+    @Override
+    public synchronized void setSeed(long graine) {
+        etat = (graine ^ MULTIPLICATEUR) & MASQUE;
+        aGaussienneSuivante = false;
+    }
+
+    @Override
+    protected int next(int bits) {
+        etat = (etat * MULTIPLICATEUR + INCREMENT) & MASQUE;
+        return (int) (etat >>> (48 - bits));
+    }
+
+    @Override
+    public double nextGaussian() {
+        if (aGaussienneSuivante) {
+            aGaussienneSuivante = false;
+            return gaussienneSuivante;
+        }
+        double v1, v2, s;
+        do {
+            v1 = 2 * nextDouble() - 1;
+            v2 = 2 * nextDouble() - 1;
+            s = v1 * v1 + v2 * v2;
+        } while (s >= 1 || s == 0);
+        double multiplicateur = StrictMath.sqrt(-2 * StrictMath.log(s) / s);
+        gaussienneSuivante = v2 * multiplicateur;
+        aGaussienneSuivante = true;
+        return v1 * multiplicateur;
+    }
+
+    long getEtat() {
+        return etat;
+    }
+
+    boolean aGaussienneSuivante() {
+        return aGaussienneSuivante;
+    }
+
+    double getGaussienneSuivante() {
+        return gaussienneSuivante;
+    }
+
+    /**
+     * Remet le générateur dans l'état donné par getEtat,
+     * aGaussienneSuivante et getGaussienneSuivante
+     */
+    void restaurer(long etat, boolean aGaussienneSuivante, double gaussienneSuivante) {
+        this.etat = etat & MASQUE;
+        this.aGaussienneSuivante = aGaussienneSuivante;
+        this.gaussienneSuivante = gaussienneSuivante;
+    }
+}
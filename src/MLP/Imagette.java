@@ -11,13 +11,22 @@ import java.io.IOException;
  * represente une imagette issue de MNIST
  * - des donnees
  * - un label
+ *
+ * les pixels (0 a 255) sont stockes sur un octet chacun, ligne par ligne, dans
+ * un tableau d'octets : celui de l'imagette, ou celui d'un Dataset dont
+ * l'imagette n'est qu'une vue (aucune copie des pixels)
  */
 public class Imagette {
 
     /**
-     * tableau de couleurs
+     * tableau d'octets contenant les pixels
      */
-    int[][] tab;
+    private final byte[] donnees;
+
+    /**
+     * position du premier pixel de l'imagette dans donnees
+     */
+    private final int offset;
 
     /**
      * taille imagette
@@ -47,7 +56,25 @@ public class Imagette {
         this.chiffre = label;
 
         // creation du tableau
-        tab = new int[nLignes][nCols];
+        this.donnees = new byte[nLignes * nCols];
+        this.offset = 0;
+    }
+
+    /**
+     * constructeur d'une vue sur des pixels existants
+     *
+     * @param donnees tableau d'octets contenant les pixels
+     * @param offset  position du premier pixel de l'imagette
+     * @param nLignes nombre de lignes
+     * @param nCols   nombre de colonnes
+     * @param label   etiquette de l'imagette
+     */
+    Imagette(byte[] donnees, int offset, int nLignes, int nCols, int label) {
+        this.setLignes(nLignes);
+        this.setColonnes(nCols);
+        this.chiffre = label;
+        this.donnees = donnees;
+        this.offset = offset;
     }
 
     /**
@@ -55,10 +82,10 @@ public class Imagette {
      *
      * @param ligne  ligne
      * @param col    colonne
-     * @param valeur valeur du pixel
+     * @param valeur valeur du pixel (0 a 255)
      */
     public void modifierValeur(int ligne, int col, int valeur) {
-        this.tab[ligne][col] = valeur;
+        this.donnees[offset + ligne * colonnes + col] = (byte) valeur;
     }
 
     /**
@@ -68,7 +95,24 @@ public class Imagette {
      * @return couleur du pixel
      */
     public int getValeur(int l, int c) {
-        return this.tab[l][c];
+        return this.donnees[offset + l * colonnes + c] & 0xFF;
+    }
+
+    /**
+     * tableau d'octets contenant les pixels de l'imagette, a partir de
+     * getOffset(), ligne par ligne (pour les parcours sequentiels)
+     *
+     * @return tableau des pixels (partage, ne pas modifier)
+     */
+    byte[] getDonnees() {
+        return donnees;
+    }
+
+    /**
+     * @return position du premier pixel dans getDonnees()
+     */
+    int getOffset() {
+        return offset;
     }
 
     /**
@@ -96,7 +140,7 @@ public class Imagette {
 
         for (int x = 0; x < tailleX; x++)
             for (int y = 0; y < tailleX; y++) {
-                int value = this.tab[y][x];
+                int value = this.getValeur(y, x);
                 int rgb = new Color(value, value, value).getRGB();
                 bfImage.setRGB(x, y, rgb);
             }
@@ -0,0 +1,229 @@
+package MLP;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Index exact des plus proches voisins : arbre de points de vue (VP-tree)
+ * sur la distance euclidienne entre imagettes
+ *
+ * Chaque nœud choisit un point de vue parmi ses imagettes et les partage à
+ * la médiane de leur distance à ce point : les plus proches à l'intérieur,
+ * les autres à l'extérieur, avec pour chaque côté l'intervalle des distances
+ * au point de vue. Par l'inégalité triangulaire, une imagette x d'un côté
+ * vérifie d(q, x) >= |d(q, vp) - d(vp, x)| : le côté est ignoré quand cette
+ * borne dépasse la distance du k-ième voisin courant. Les feuilles (au plus
+ * TAILLE_FEUILLE imagettes) sont parcourues avec abandon précoce.
+ *
+ * L'arbre est stocké dans une permutation des imagettes : le nœud de
+ * l'intervalle [debut, fin[ a son point de vue en debut, son intérieur en
+ * [debut + 1, milieu[ et son extérieur en [milieu, fin[. L'index garde une
+ * copie des pixels dans cet ordre, pour que chaque feuille soit lue d'un
+ * seul bloc.
+ *
+ * Les voisins sont gardés dans un kNN.Voisins, qui les compare par
+ * distance au carré puis par indice d'entraînement : le résultat ne dépend
+ * pas de l'ordre de parcours et, égalités comprises, ce sont les mêmes
+ * voisins que ceux du parcours de tout l'entraînement. Une borne n'écarte
+ * un côté que si toutes ses imagettes sont strictement plus loin que le
+ * k-ième voisin.
+ */
+final class IndexVP {
+
+    /**
+     * Taille maximale d'une feuille
+     */
+    static final int TAILLE_FEUILLE = 16;
+
+    /**
+     * Marge des comparaisons de bornes, qui ne doivent rien écarter à cause
+     * des arrondis des racines carrées
+     */
+    private static final double MARGE = 1e-6;
+
+    private static final int BLOC_ABANDON = 64;
+
+    /**
+     * Pixels des imagettes dans l'ordre de points
+     */
+    private final byte[] pixels;
+    private final int taillePixels;
+
+    /**
+     * Permutation des imagettes d'entraînement (voir la description)
+     */
+    private final int[] points;
+
+    /**
+     * Pour le nœud de point de vue en position debut : début de l'extérieur,
+     * et intervalles des distances au point de vue de l'intérieur et de
+     * l'extérieur
+     */
+    private final int[] milieux;
+    private final double[] minInterieur;
+    private final double[] maxInterieur;
+    private final double[] minExterieur;
+    private final double[] maxExterieur;
+
+    private int nbNoeuds;
+    private int profondeur;
+    private final long tempsConstructionMs;
+
+    private final AtomicLong requetes = new AtomicLong();
+    private final AtomicLong distancesCalculees = new AtomicLong();
+
+    /**
+     * @param pixels       n imagettes de taillePixels octets, à la suite
+     * @param taillePixels nombre de pixels d'une imagette
+     * @param n            nombre d'imagettes
+     */
+    IndexVP(byte[] pixels, int taillePixels, int n) {
+        long debut = System.currentTimeMillis();
+        this.taillePixels = taillePixels;
+        this.points = new int[n];
+        for (int i = 0; i < n; i++)
+            points[i] = i;
+        this.milieux = new int[n];
+        this.minInterieur = new double[n];
+        this.maxInterieur = new double[n];
+        this.minExterieur = new double[n];
+        this.maxExterieur = new double[n];
+
+        // graine fixe : même arbre à chaque construction
+        construire(pixels, 0, n, 1, new Random(0), new long[n]);
+        this.pixels = new byte[n * taillePixels];
+        for (int i = 0; i < n; i++)
+            System.arraycopy(pixels, points[i] * taillePixels, this.pixels, i * taillePixels, taillePixels);
+        this.tempsConstructionMs = System.currentTimeMillis() - debut;
+    }
+
+    /**
+     * Construit le nœud de l'intervalle [debut, fin[ de points
+     *
+     * @param pixels pixels des imagettes dans l'ordre d'entraînement
+     * @param cles tampon de tri (distance au carré, imagette)
+     */
+    private void construire(byte[] pixels, int debut, int fin, int niveau, Random random, long[] cles) {
+        profondeur = Math.max(profondeur, niveau);
+        if (fin - debut <= TAILLE_FEUILLE)
+            return;
+        nbNoeuds++;
+
+        // point de vue au hasard, placé en tête
+        int choisi = debut + random.nextInt(fin - debut);
+        int vp = points[choisi];
+        points[choisi] = points[debut];
+        points[debut] = vp;
+
+        // autres imagettes triées par distance au point de vue
+        for (int i = debut + 1; i < fin; i++)
+            cles[i] = kNN.Voisins.cle(Noyaux.INSTANCE.distanceCarree(pixels, vp * taillePixels, pixels,
+                    points[i] * taillePixels, taillePixels), points[i]);
+        Arrays.sort(cles, debut + 1, fin);
+        for (int i = debut + 1; i < fin; i++)
+            points[i] = kNN.Voisins.indice(cles[i]);
+
+        int milieu = (debut + 1 + fin + 1) >>> 1;
+        milieux[debut] = milieu;
+        minInterieur[debut] = Math.sqrt(kNN.Voisins.distance(cles[debut + 1]));
+        maxInterieur[debut] = Math.sqrt(kNN.Voisins.distance(cles[milieu - 1]));
+        minExterieur[debut] = Math.sqrt(kNN.Voisins.distance(cles[milieu]));
+        maxExterieur[debut] = Math.sqrt(kNN.Voisins.distance(cles[fin - 1]));
+
+        construire(pixels, debut + 1, milieu, niveau + 1, random, cles);
+        construire(pixels, milieu, fin, niveau + 1, random, cles);
+    }
+
+    /**
+     * Cherche les plus proches voisins de requete (pixels dans le même ordre
+     * que ceux de l'index) et les laisse dans voisins
+     */
+    void chercher(byte[] requete, kNN.Voisins voisins) {
+        voisins.vider();
+        long calculees = chercher(requete, 0, points.length, voisins);
+        requetes.incrementAndGet();
+        distancesCalculees.addAndGet(calculees);
+    }
+
+    /**
+     * @return nombre de distances calculées dans le nœud [debut, fin[
+     */
+    private long chercher(byte[] requete, int debut, int fin, kNN.Voisins voisins) {
+        if (fin - debut <= TAILLE_FEUILLE) {
+            for (int i = debut; i < fin; i++) {
+                // inutile de finir une distance au-delà du seuil d'entrée
+                // (à égalité avec le k-ième voisin, l'indice départage)
+                long seuil = voisins.seuil(points[i]);
+                voisins.proposer(distanceCarreeBornee(requete, i * taillePixels, seuil), points[i]);
+            }
+            return fin - debut;
+        }
+
+        int vp = points[debut];
+        long distVp = Noyaux.INSTANCE.distanceCarree(requete, 0, pixels, debut * taillePixels, taillePixels);
+        voisins.proposer(distVp, vp);
+        double d = Math.sqrt(distVp);
+        int milieu = milieux[debut];
+
+        long calculees = 1;
+        // le côté de la requête d'abord : le rayon de recherche diminue plus
+        // vite
+        boolean interieurDabord = d <= (maxInterieur[debut] + minExterieur[debut]) / 2;
+        for (int cote = 0; cote < 2; cote++) {
+            boolean interieur = (cote == 0) == interieurDabord;
+            double min = interieur ? minInterieur[debut] : minExterieur[debut];
+            double max = interieur ? maxInterieur[debut] : maxExterieur[debut];
+            if (voisins.plein()) {
+                double rayon = Math.sqrt(voisins.pire()) + MARGE;
+                if (d - max > rayon || min - d > rayon)
+                    continue;
+            }
+            calculees += interieur ? chercher(requete, debut + 1, milieu, voisins)
+                    : chercher(requete, milieu, fin, voisins);
+        }
+        return calculees;
+    }
+
+    /**
+     * Distance au carré entre la requête et l'imagette de pixels[offset...],
+     * abandonnée dès qu'elle atteint seuil
+     *
+     * @return la distance au carré, ou une valeur partielle >= seuil
+     */
+    private long distanceCarreeBornee(byte[] requete, int offset, long seuil) {
+        long sum = 0;
+        for (int debut = 0; debut < taillePixels; debut += BLOC_ABANDON) {
+            int n = Math.min(BLOC_ABANDON, taillePixels - debut);
+            sum += Noyaux.INSTANCE.distanceCarree(requete, debut, pixels, offset + debut, n);
+            if (sum >= seuil)
+                return sum;
+        }
+        return sum;
+    }
+
+    long getTempsConstructionMs() {
+        return tempsConstructionMs;
+    }
+
+    int getNbNoeuds() {
+        return nbNoeuds;
+    }
+
+    int getProfondeur() {
+        return profondeur;
+    }
+
+    long getRequetes() {
+        return requetes.get();
+    }
+
+    long getDistancesCalculees() {
+        return distancesCalculees.get();
+    }
+
+    void reinitialiserStatistiques() {
+        requetes.set(0);
+        distancesCalculees.set(0);
+    }
+}
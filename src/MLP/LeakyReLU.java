@@ -0,0 +1,80 @@
+package MLP;
+
+/**
+ * Fonction de transfert Leaky ReLU
+ *
+ * Fonction : f(x) = x si x > 0, alpha * x sinon
+ * Dérivée : f'(f) = 1 si f > 0, alpha sinon
+ *
+ * Note : La dérivée reçoit f(x) en paramètre, pas x (alpha > 0, donc f(x)
+ * a le signe de x). Initialisation des poids comme ReLU.
+ */
+public class LeakyReLU extends ReLU {
+    private final double alpha;
+
+    /**
+     * pente 0.01 pour les entrées négatives
+     */
+    public LeakyReLU() {
+        this(0.01);
+    }
+
+    /**
+     * @param alpha pente pour les entrées négatives (strictement positive)
+     */
+    public LeakyReLU(double alpha) {
+        if (alpha <= 0.0)
+            throw new IllegalArgumentException("alpha doit etre positif : " + alpha);
+        this.alpha = alpha;
+    }
+
+    /**
+     * @param x valeur d'entrée
+     * @return x si x > 0, alpha * x sinon
+     */
+    @Override
+    public double evaluate(double x) {
+        return x > 0.0 ? x : alpha * x;
+    }
+
+    /**
+     * @param f résultat de f(x), PAS x lui-même
+     * @return 1 si f > 0, alpha sinon
+     */
+    @Override
+    public double evaluateDer(double f) {
+        return f > 0.0 ? 1.0 : alpha;
+    }
+
+    @Override
+    public void evaluate(double[] in, double[] out, int n) {
+        for (int i = 0; i < n; i++)
+            out[i] = in[i] > 0.0 ? in[i] : alpha * in[i];
+    }
+
+    @Override
+    public void applyDer(double[] f, double[] deltas, int n) {
+        for (int i = 0; i < n; i++)
+            if (f[i] <= 0.0)
+                deltas[i] *= alpha;
+    }
+
+    @Override
+    public void evaluate(float[] in, float[] out, int n) {
+        float a = (float) alpha;
+        for (int i = 0; i < n; i++)
+            out[i] = in[i] > 0.0f ? in[i] : a * in[i];
+    }
+
+    @Override
+    public void applyDer(float[] f, float[] deltas, int n) {
+        float a = (float) alpha;
+        for (int i = 0; i < n; i++)
+            if (f[i] <= 0.0f)
+                deltas[i] *= a;
+    }
+
+    public double getAlpha() {
+        return alpha;
+    }
+}
@@ -1,68 +1,58 @@
 package MLP;
 
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+public class MLP {
+    protected double fLearningRate = 0.6;
 
-interface TransferFunction {
     /**
-     * Function de transfert
-     * 
-     * @param value entrée
-     * @return sortie de la fonction sur l'entrée
+     * Fonction de transfert de chaque couche (fTransferFunctions[0], couche
+     * d'entrée, est null)
      */
-    public double evaluate(double value);
+    protected TransferFunction[] fTransferFunctions;
 
     /**
-     * Dérivée de la fonction de tranfert
-     * 
-     * @param value entrée
-     * @return sortie de la fonction dérivée sur l'entrée
+     * Couche de sortie softmax (sa fonction de transfert est alors ignorée),
+     * apprise avec l'entropie croisée : le Delta de sortie est target - out
      */
-    public double evaluateDer(double value);
-}
-
-class Neuron {
-    public double Value;
-    public double[] Weights;
-    public double Bias;
-    public double Delta;
+    protected boolean fSoftmax;
 
-    public Neuron(int prevLayerSize) {
-        Weights = new double[prevLayerSize];
-        Bias = Math.random();
-        Delta = Math.random() / 10000000000000.0;
-        Value = Math.random() / 10000000000000.0;
+    /**
+     * Nombre de neurones de chaque couche
+     */
+    protected int[] fSizes;
 
-        for (int i = 0; i < Weights.length; i++)
-            Weights[i] = Math.random() / Weights.length;
-    }
-}
+    /**
+     * Poids de chaque couche, stockés ligne par ligne dans un seul tableau :
+     * le poids reliant le neurone i de la couche k au neurone j de la couche
+     * k-1 est fWeights[k][i * fSizes[k - 1] + j] (fWeights[0] est vide)
+     */
+    protected double[][] fWeights;
 
-class Layer {
-    public Neuron Neurons[];
-    public int Length;
+    /**
+     * Biais de chaque couche (fBiases[k][i] pour le neurone i de la couche k)
+     */
+    protected double[][] fBiases;
 
     /**
-     * Couche de Neurones
-     * 
-     * @param l    Taille de la couche
-     * @param prev Taille de la couche précédente
+     * Règle de mise à jour des paramètres (SGD par défaut). Slots : poids
+     * de la couche k en 2 * (k - 1), biais en 2 * (k - 1) + 1.
      */
-    public Layer(int l, int prev) {
-        Length = l;
-        Neurons = new Neuron[l];
+    protected Optimizer fOptimizer;
 
-        for (int j = 0; j < Length; j++)
-            Neurons[j] = new Neuron(prev);
-    }
-}
+    /**
+     * Zone de travail (valeurs et Delta) utilisée par execute et backPropagate
+     */
+    protected MLPWorkspace fWorkspace;
 
-public class MLP {
-    protected double fLearningRate = 0.6;
-    protected Layer[] fLayers;
-    protected TransferFunction fTransferFunction;
+    /**
+     * Zone de travail réutilisée par trainBatch (créée au premier lot)
+     */
+    private BatchWorkspace fBatchWorkspace;
 
     /**
      * @param layers       Nb neurones par couches
@@ -71,19 +61,224 @@ public class MLP {
      */
 
     public MLP(int[] layers, double learningRate, TransferFunction fun) {
+        this(layers, learningRate, parCouche(fun, layers.length));
+    }
+
+    /**
+     * @param layers       Nb neurones par couches
+     * @param learningRate tx d'apprentissage
+     * @param funs         Function de transfert de chaque couche après
+     *                     l'entrée (layers.length - 1 fonctions)
+     */
+    public MLP(int[] layers, double learningRate, TransferFunction[] funs) {
+        this(layers, learningRate, funs, true);
+        initWeights(new Random());
+    }
+
+    /**
+     * Constructeur des sous-classes qui stockent leurs paramètres autrement
+     * (voir MLPFloat) : si allouer est faux, ni fWeights, ni fBiases, ni
+     * fWorkspace ne sont créés, la sous-classe les remplace puis appelle
+     * initWeights
+     */
+    protected MLP(int[] layers, double learningRate, TransferFunction[] funs, boolean allouer) {
+        if (funs.length != layers.length - 1)
+            throw new IllegalArgumentException("une fonction de transfert par couche après l'entrée");
         fLearningRate = learningRate;
-        fTransferFunction = fun;
+        fTransferFunctions = new TransferFunction[layers.length];
+        System.arraycopy(funs, 0, fTransferFunctions, 1, funs.length);
 
-        fLayers = new Layer[layers.length];
-        for (int i = 0; i < layers.length; i++) {
-            if (i != 0) {
-                fLayers[i] = new Layer(layers[i], layers[i - 1]);
-            } else {
-                fLayers[i] = new Layer(layers[i], 0);
+        fSizes = layers.clone();
+        setOptimizer(new SGD());
+        if (allouer) {
+            fWeights = new double[layers.length][];
+            fBiases = new double[layers.length][];
+            for (int k = 0; k < layers.length; k++) {
+                int prev = (k != 0) ? layers[k - 1] : 0;
+                fWeights[k] = new double[layers[k] * prev];
+                fBiases[k] = new double[layers[k]];
+            }
+            fWorkspace = new MLPWorkspace(fSizes);
+        }
+    }
+
+    /**
+     * @return la même fonction pour les n - 1 couches après l'entrée
+     */
+    static TransferFunction[] parCouche(TransferFunction fun, int n) {
+        TransferFunction[] funs = new TransferFunction[n - 1];
+        Arrays.fill(funs, fun);
+        return funs;
+    }
+
+    /**
+     * (Ré)initialise aléatoirement les poids et les biais, selon
+     * TransferFunction.ecartTypeInitial de chaque couche
+     *
+     * @param random générateur utilisé (une graine fixe rend l'initialisation
+     *               reproductible)
+     */
+    void initWeights(Random random) {
+        for (int k = 0; k < fSizes.length; k++) {
+            int prev = (k != 0) ? fSizes[k - 1] : 0;
+            double ecartType = (k != 0) ? fTransferFunctions[k].ecartTypeInitial(prev) : 0.0;
+            for (int i = 0; i < fSizes[k]; i++) {
+                fBiases[k][i] = tirerBiais(random, ecartType);
+                for (int j = 0; j < prev; j++)
+                    fWeights[k][i * prev + j] = tirerPoids(random, ecartType, prev);
             }
         }
     }
 
+    static double tirerBiais(Random random, double ecartType) {
+        return ecartType > 0.0 ? 0.0 : random.nextDouble();
+    }
+
+    static double tirerPoids(Random random, double ecartType, int prev) {
+        return ecartType > 0.0 ? random.nextGaussian() * ecartType : random.nextDouble() / prev;
+    }
+
+    /**
+     * Softmax en place de v[off], ..., v[off + n - 1] (le maximum est
+     * soustrait avant l'exponentielle pour éviter les débordements)
+     */
+    static void softmax(double[] v, int off, int n) {
+        double max = v[off];
+        for (int i = 1; i < n; i++)
+            max = Math.max(max, v[off + i]);
+        double sum = 0.0;
+        for (int i = 0; i < n; i++) {
+            v[off + i] = Math.exp(v[off + i] - max);
+            sum += v[off + i];
+        }
+        for (int i = 0; i < n; i++)
+            v[off + i] /= sum;
+    }
+
+    /**
+     * Version simple précision de softmax(double[], int, int)
+     */
+    static void softmax(float[] v, int off, int n) {
+        float max = v[off];
+        for (int i = 1; i < n; i++)
+            max = Math.max(max, v[off + i]);
+        double sum = 0.0;
+        for (int i = 0; i < n; i++) {
+            v[off + i] = (float) Math.exp(v[off + i] - max);
+            sum += v[off + i];
+        }
+        for (int i = 0; i < n; i++)
+            v[off + i] /= sum;
+    }
+
+    /**
+     * Copie les poids et les biais du réseau dans weights et biases (même
+     * disposition que fWeights et fBiases, tableaux déjà alloués)
+     */
+    void exporterParametres(double[][] weights, double[][] biases) {
+        for (int k = 1; k < fSizes.length; k++) {
+            System.arraycopy(fWeights[k], 0, weights[k], 0, fWeights[k].length);
+            System.arraycopy(fBiases[k], 0, biases[k], 0, fBiases[k].length);
+        }
+    }
+
+    /**
+     * Remplace les poids et les biais du réseau par weights et biases (même
+     * disposition que fWeights et fBiases)
+     */
+    void importerParametres(double[][] weights, double[][] biases) {
+        for (int k = 1; k < fSizes.length; k++) {
+            System.arraycopy(weights[k], 0, fWeights[k], 0, fWeights[k].length);
+            System.arraycopy(biases[k], 0, fBiases[k], 0, fBiases[k].length);
+        }
+    }
+
+    /**
+     * Recopie les poids et les biais d'un réseau de même architecture, quelle
+     * que soit sa précision
+     */
+    void copierParametres(MLP source) {
+        if (!Arrays.equals(fSizes, source.fSizes))
+            throw new IllegalArgumentException("architectures differentes");
+        double[][][] parametres = allouerParametres();
+        source.exporterParametres(parametres[0], parametres[1]);
+        importerParametres(parametres[0], parametres[1]);
+    }
+
+    /**
+     * @return tableaux {poids, biais} en double, de même disposition que
+     *         fWeights et fBiases, pour exporterParametres
+     */
+    double[][][] allouerParametres() {
+        double[][] weights = new double[fSizes.length][];
+        double[][] biases = new double[fSizes.length][];
+        for (int k = 0; k < fSizes.length; k++) {
+            int prev = (k != 0) ? fSizes[k - 1] : 0;
+            weights[k] = new double[fSizes[k] * prev];
+            biases[k] = new double[fSizes[k]];
+        }
+        return new double[][][] { weights, biases };
+    }
+
+    /**
+     * @return taille en octets des poids et des biais dans le format binaire
+     *         des modèles (voir FormatModele)
+     */
+    int tailleParametres() {
+        int taille = 0;
+        for (int k = 1; k < fSizes.length; k++)
+            taille += 8 * (fWeights[k].length + fBiases[k].length);
+        return taille;
+    }
+
+    /**
+     * Écrit les poids puis les biais de chaque couche dans buffer
+     */
+    void ecrireParametres(ByteBuffer buffer) {
+        for (int k = 1; k < fSizes.length; k++) {
+            FormatModele.ecrire(buffer, fWeights[k]);
+            FormatModele.ecrire(buffer, fBiases[k]);
+        }
+    }
+
+    /**
+     * Lit les poids et les biais écrits par ecrireParametres
+     */
+    void lireParametres(ByteBuffer buffer) {
+        for (int k = 1; k < fSizes.length; k++) {
+            FormatModele.lire(buffer, fWeights[k]);
+            FormatModele.lire(buffer, fBiases[k]);
+        }
+    }
+
+    /**
+     * Enregistre le réseau (architecture, fonctions de transfert, softmax,
+     * taux d'apprentissage et paramètres) dans un fichier binaire compact.
+     * Les fonctions de transfert doivent avoir un constructeur public sans
+     * paramètre (sauf LeakyReLU, dont alpha est enregistré).
+     *
+     * @param fichier nom du fichier créé ou remplacé
+     * @throws IOException problème d'écriture
+     */
+    public void sauvegarder(String fichier) throws IOException {
+        FormatModele.ecrire(this, Path.of(fichier));
+    }
+
+    /**
+     * Recrée un réseau enregistré par sauvegarder, dans la même précision.
+     * Le fichier est projeté en mémoire et les paramètres sont copiés par
+     * blocs : le chargement ne coûte que la lecture des octets.
+     *
+     * @param fichier nom du fichier du modèle
+     * @return le réseau (MLPFloat pour un modèle en simple précision), avec
+     *         l'optimiseur SGD
+     * @throws IOException problème de lecture ou fichier qui n'est pas un
+     *                     modèle
+     */
+    public static MLP charger(String fichier) throws IOException {
+        return FormatModele.lire(Path.of(fichier));
+    }
+
     /**
      * Réponse à une entrée
      * 
@@ -91,33 +286,63 @@ public class MLP {
      * @return résultat de l'exécution
      */
     public double[] execute(double[] input) {
-        int i, j, k;
-        double new_value;
+        return execute(input, fWorkspace).clone();
+    }
 
-        double output[] = new double[fLayers[fLayers.length - 1].Length];
+    /**
+     * Réponse à une entrée, calculée dans la zone de travail ws
+     *
+     * N'écrit que dans ws et n'alloue rien : plusieurs threads peuvent
+     * l'appeler en même temps sur le même MLP, chacun avec sa zone, tant que
+     * le réseau n'est pas en cours d'apprentissage.
+     *
+     * @param input l'entrée testée
+     * @param ws    zone de travail du thread appelant
+     * @return la couche de sortie de ws (réécrite au prochain appel)
+     */
+    public double[] execute(double[] input, MLPWorkspace ws) {
+        int i, k;
+        double new_value;
+        int last = fSizes.length - 1;
 
         // input en entrée du réseau
-        for (i = 0; i < fLayers[0].Length; i++) {
-            fLayers[0].Neurons[i].Value = input[i];
-        }
+        System.arraycopy(input, 0, ws.values[0], 0, fSizes[0]);
 
         // calculs couches cachées et sortie
-        for (k = 1; k < fLayers.length; k++) {
-            for (i = 0; i < fLayers[k].Length; i++) {
-                new_value = 0.0;
-                for (j = 0; j < fLayers[k - 1].Length; j++)
-                    new_value += fLayers[k].Neurons[i].Weights[j] * fLayers[k - 1].Neurons[j].Value;
-
-                new_value -= fLayers[k].Neurons[i].Bias;
-                fLayers[k].Neurons[i].Value = fTransferFunction.evaluate(new_value);
+        for (k = 1; k < fSizes.length; k++) {
+            double[] weights = fWeights[k];
+            double[] biases = fBiases[k];
+            double[] prev = ws.values[k - 1];
+            double[] values = ws.values[k];
+            int nPrev = fSizes[k - 1];
+
+            for (i = 0; i < fSizes[k]; i++) {
+                new_value = Noyaux.INSTANCE.produit(weights, i * nPrev, prev, 0, nPrev);
+                values[i] = new_value - biases[i];
             }
+            if (k == last && fSoftmax)
+                softmax(values, 0, fSizes[k]);
+            else
+                fTransferFunctions[k].evaluate(values, values, fSizes[k]);
         }
 
         // Renvoyer sortie
-        for (i = 0; i < fLayers[fLayers.length - 1].Length; i++) {
-            output[i] = fLayers[fLayers.length - 1].Neurons[i].Value;
-        }
-        return output;
+        return ws.values[last];
+    }
+
+    /**
+     * @return une nouvelle zone de travail adaptée à ce réseau
+     */
+    public MLPWorkspace createWorkspace() {
+        return new MLPWorkspace(fSizes);
+    }
+
+    /**
+     * @return une nouvelle zone de travail pour des lots d'au plus capacity
+     *         exemples
+     */
+    BatchWorkspace createBatchWorkspace(int capacity) {
+        return new BatchWorkspace(fSizes, capacity);
     }
 
     /**
@@ -129,32 +354,53 @@ public class MLP {
      */
 
     public double backPropagate(double[] input, double[] output) {
-        double new_output[] = execute(input);
+        return backPropagate(input, output, fWorkspace);
+    }
+
+    /**
+     * Rétropropagation utilisant la zone de travail ws. Plusieurs threads
+     * peuvent l'appeler en même temps sur le même MLP, chacun avec sa zone :
+     * les poids sont alors mis à jour sans verrou (mode Hogwild).
+     */
+    double backPropagate(double[] input, double[] output, MLPWorkspace ws) {
+        double new_output[] = execute(input, ws);
         double error;
-        int i, j, k;
+        int i, k;
+        int last = fSizes.length - 1;
 
         // Erreur de sortie
-        for (i = 0; i < fLayers[fLayers.length - 1].Length; i++) {
-            error = output[i] - new_output[i];
-            fLayers[fLayers.length - 1].Neurons[i].Delta = error * fTransferFunction.evaluateDer(new_output[i]);
-        }
+        double[] outDeltas = ws.deltas[last];
+        for (i = 0; i < fSizes[last]; i++)
+            outDeltas[i] = output[i] - new_output[i];
+        if (!fSoftmax)
+            fTransferFunctions[last].applyDer(new_output, outDeltas, fSizes[last]);
 
-        for (k = fLayers.length - 2; k >= 0; k--) {
-            // Calcul de l'erreur courante pour les couches cachées
-            // et mise à jour des Delta de chaque neurone
-            for (i = 0; i < fLayers[k].Length; i++) {
-                error = 0.0;
-                for (j = 0; j < fLayers[k + 1].Length; j++)
-                    error += fLayers[k + 1].Neurons[j].Delta * fLayers[k + 1].Neurons[j].Weights[i];
-                fLayers[k].Neurons[i].Delta = error * fTransferFunction.evaluateDer(fLayers[k].Neurons[i].Value);
-            }
-            // Mise à jour des poids de la couche suivante
-            for (i = 0; i < fLayers[k + 1].Length; i++) {
-                for (j = 0; j < fLayers[k].Length; j++)
-                    fLayers[k + 1].Neurons[i].Weights[j] += fLearningRate * fLayers[k + 1].Neurons[i].Delta *
-                            fLayers[k].Neurons[j].Value;
-                fLayers[k + 1].Neurons[i].Bias -= fLearningRate * fLayers[k + 1].Neurons[i].Delta;
+        fOptimizer.debutEtape(fLearningRate);
+        for (k = last - 1; k >= 0; k--) {
+            double[] weights = fWeights[k + 1];
+            double[] biases = fBiases[k + 1];
+            double[] nextDeltas = ws.deltas[k + 1];
+            double[] values = ws.values[k];
+            double[] deltas = ws.deltas[k];
+            int n = fSizes[k];
+
+            // Chaque ligne de poids de la couche suivante contribue à l'erreur
+            // de la couche courante avant d'être mise à jour.
+            // Les Delta de la couche d'entrée ne servent pas, on les ignore.
+            if (k > 0)
+                Arrays.fill(deltas, 0.0);
+            for (i = 0; i < fSizes[k + 1]; i++) {
+                int row = i * n;
+                double delta = nextDeltas[i];
+                if (k > 0)
+                    Noyaux.INSTANCE.axpy(delta, weights, row, deltas, 0, n);
+                fOptimizer.appliquer(2 * k, weights, row, values, 0, delta, n);
             }
+            fOptimizer.appliquer(2 * k + 1, biases, 0, nextDeltas, 0, -1.0, fSizes[k + 1]);
+
+            // Calcul de l'erreur courante pour les couches cachées
+            if (k > 0)
+                fTransferFunctions[k].applyDer(values, deltas, n);
         }
 
         // Calcul de l'erreur
@@ -166,6 +412,157 @@ public class MLP {
         return error;
     }
 
+    /**
+     * Apprentissage sur un lot (mini-batch) : les gradients de tous les
+     * exemples sont accumulés puis les poids sont mis à jour une seule fois
+     * avec le gradient moyen du lot
+     *
+     * @param inputs  Les entrées du lot (une ligne par exemple)
+     * @param targets Sorties souhaitées correspondantes
+     * @return Erreur moyenne sur le lot (même mesure que backPropagate)
+     */
+    public double trainBatch(double[][] inputs, double[][] targets) {
+        return trainBatch(inputs, targets, inputs.length);
+    }
+
+    /**
+     * Apprentissage sur les count premiers exemples de inputs/targets
+     * (permet de réutiliser des tableaux de lot plus grands que le lot courant)
+     */
+    double trainBatch(double[][] inputs, double[][] targets, int count) {
+        if (fBatchWorkspace == null || fBatchWorkspace.capacity < count)
+            fBatchWorkspace = createBatchWorkspace(count);
+        return trainBatch(inputs, targets, count, fBatchWorkspace);
+    }
+
+    /**
+     * Apprentissage sur un lot en utilisant la zone de travail ws, qui
+     * contient ensuite les sorties calculées et le nombre d'exemples bien
+     * classés
+     */
+    double trainBatch(double[][] inputs, double[][] targets, int count, BatchWorkspace ws) {
+        double error = computeGradients(inputs, targets, 0, count, ws);
+        applyGradients(ws, count);
+        return error / count;
+    }
+
+    /**
+     * Propagation avant des exemples [from, from + count[ d'un lot, sans
+     * toucher au réseau : seul ws est modifié
+     *
+     * @return la couche de sortie de ws (une ligne de taille
+     *         getOutputLayerSize() par exemple)
+     */
+    double[] executeBatch(double[][] inputs, int from, int count, BatchWorkspace ws) {
+        int last = fSizes.length - 1;
+        int b, i, k;
+
+        // Propagation avant : une ligne de values[k] par exemple
+        double[] in = ws.values[0];
+        for (b = 0; b < count; b++)
+            System.arraycopy(inputs[from + b], 0, in, b * fSizes[0], fSizes[0]);
+
+        for (k = 1; k <= last; k++) {
+            double[] values = ws.values[k];
+            double[] biases = fBiases[k];
+            int n = fSizes[k];
+            Matrices.multiplierTransposeeB(ws.values[k - 1], fWeights[k], values, count, n, fSizes[k - 1]);
+            for (b = 0; b < count; b++) {
+                int row = b * n;
+                for (i = 0; i < n; i++)
+                    values[row + i] -= biases[i];
+            }
+            if (k == last && fSoftmax) {
+                for (b = 0; b < count; b++)
+                    softmax(values, b * n, n);
+            } else {
+                fTransferFunctions[k].evaluate(values, values, count * n);
+            }
+        }
+        return ws.values[last];
+    }
+
+    /**
+     * Calcule les gradients des exemples [from, to[ du lot sans toucher aux
+     * poids. Les gradients sont écrits (pas ajoutés) dans ws, ainsi que le
+     * nombre d'exemples dont la plus grande sortie est celle attendue.
+     *
+     * @return somme des erreurs des exemples
+     */
+    double computeGradients(double[][] inputs, double[][] targets, int from, int to, BatchWorkspace ws) {
+        int count = to - from;
+        int last = fSizes.length - 1;
+        int b, i, k;
+
+        executeBatch(inputs, from, count, ws);
+
+        // Erreur de sortie
+        double error = 0.0;
+        double[] outValues = ws.values[last];
+        double[] outDeltas = ws.deltas[last];
+        int nOut = fSizes[last];
+        int correct = 0;
+        for (b = 0; b < count; b++) {
+            double[] target = targets[from + b];
+            int row = b * nOut;
+            double sampleError = 0.0;
+            int predicted = 0;
+            int expected = 0;
+            for (i = 0; i < nOut; i++) {
+                double diff = target[i] - outValues[row + i];
+                outDeltas[row + i] = diff;
+                sampleError += Math.abs(diff);
+                if (outValues[row + i] > outValues[row + predicted])
+                    predicted = i;
+                if (target[i] > target[expected])
+                    expected = i;
+            }
+            error += sampleError / nOut;
+            if (predicted == expected)
+                correct++;
+        }
+        ws.correct = correct;
+        if (!fSoftmax)
+            fTransferFunctions[last].applyDer(outValues, outDeltas, count * nOut);
+
+        // Rétropropagation et gradients
+        for (k = last; k >= 1; k--) {
+            double[] deltas = ws.deltas[k];
+            double[] biasGrads = ws.biasGrads[k];
+            int n = fSizes[k];
+            int nPrev = fSizes[k - 1];
+
+            Arrays.fill(ws.weightGrads[k], 0.0);
+            Matrices.accumulerTransposeeA(deltas, ws.values[k - 1], ws.weightGrads[k], n, nPrev, count);
+            Arrays.fill(biasGrads, 0.0);
+            for (b = 0; b < count; b++)
+                for (i = 0; i < n; i++)
+                    biasGrads[i] += deltas[b * n + i];
+
+            if (k > 1) {
+                double[] prevValues = ws.values[k - 1];
+                double[] prevDeltas = ws.deltas[k - 1];
+                Matrices.multiplier(deltas, fWeights[k], prevDeltas, count, nPrev, n);
+                fTransferFunctions[k - 1].applyDer(prevValues, prevDeltas, count * nPrev);
+            }
+        }
+        return error;
+    }
+
+    /**
+     * Met à jour les poids avec le gradient moyen contenu dans ws
+     *
+     * @param count nombre d'exemples ayant contribué aux gradients
+     */
+    void applyGradients(BatchWorkspace ws, int count) {
+        double echelle = 1.0 / count;
+        fOptimizer.debutEtape(fLearningRate);
+        for (int k = 1; k < fSizes.length; k++) {
+            fOptimizer.appliquer(2 * (k - 1), fWeights[k], 0, ws.weightGrads[k], 0, echelle, fWeights[k].length);
+            fOptimizer.appliquer(2 * (k - 1) + 1, fBiases[k], 0, ws.biasGrads[k], 0, -echelle, fBiases[k].length);
+        }
+    }
+
     /**
      * @return LearningRate
      */
@@ -183,25 +580,86 @@ public class MLP {
     }
 
     /**
-     * maj fonction de tranfert
+     * Change la règle de mise à jour des paramètres. L'optimiseur est
+     * (ré)initialisé pour ce réseau et ne doit pas être partagé avec un
+     * autre MLP.
+     *
+     * @param optimizer SGD, Momentum, Nesterov, Adam...
+     */
+    public void setOptimizer(Optimizer optimizer) {
+        int[] tailles = new int[2 * (fSizes.length - 1)];
+        for (int k = 1; k < fSizes.length; k++) {
+            tailles[2 * (k - 1)] = fSizes[k] * fSizes[k - 1];
+            tailles[2 * (k - 1) + 1] = fSizes[k];
+        }
+        optimizer.initialiser(tailles);
+        fOptimizer = optimizer;
+    }
+
+    public Optimizer getOptimizer() {
+        return fOptimizer;
+    }
+
+    /**
+     * maj fonction de tranfert de toutes les couches
      * 
      * @param fun nouvelle fonction de tranfert
      */
     public void setTransferFunction(TransferFunction fun) {
-        fTransferFunction = fun;
+        Arrays.fill(fTransferFunctions, 1, fTransferFunctions.length, fun);
+    }
+
+    /**
+     * maj fonction de tranfert d'une couche
+     *
+     * @param layer numéro de la couche (1 pour la première couche cachée)
+     * @param fun   nouvelle fonction de tranfert
+     */
+    public void setTransferFunction(int layer, TransferFunction fun) {
+        if (layer < 1 || layer >= fSizes.length)
+            throw new IllegalArgumentException("couche invalide : " + layer);
+        fTransferFunctions[layer] = fun;
+    }
+
+    /**
+     * @return fonctions de transfert des couches après l'entrée
+     */
+    TransferFunction[] getTransferFunctions() {
+        return Arrays.copyOfRange(fTransferFunctions, 1, fTransferFunctions.length);
+    }
+
+    /**
+     * Couche de sortie softmax apprise avec l'entropie croisée (au lieu de la
+     * fonction de transfert et de l'erreur quadratique)
+     *
+     * @param softmax true pour une sortie softmax
+     */
+    public void setSoftmax(boolean softmax) {
+        fSoftmax = softmax;
+    }
+
+    /**
+     * @return précision des calculs du réseau (DOUBLE pour MLP)
+     */
+    public Precision getPrecision() {
+        return Precision.DOUBLE;
+    }
+
+    public boolean isSoftmax() {
+        return fSoftmax;
     }
 
     /**
      * @return Taille couche d'entrée
      */
     public int getInputLayerSize() {
-        return fLayers[0].Length;
+        return fSizes[0];
     }
 
     /**
      * @return Taille couche de sortie
      */
     public int getOutputLayerSize() {
-        return fLayers[fLayers.length - 1].Length;
+        return fSizes[fSizes.length - 1];
     }
 }
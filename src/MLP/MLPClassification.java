@@ -1,8 +1,18 @@
 package MLP;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Collections;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
 
 /**
  * Classification utilisant un Perceptron Multi-Couches (MLP)
@@ -11,42 +21,251 @@ import java.util.List;
 public class MLPClassification extends AlgoClassification {
 
     private MLP mlp;
+    private Precision precision = Precision.DOUBLE;
     private int inputSize;
     private int outputSize;
     private boolean shuffle;
     private double initialLearningRate;
     private boolean decayLearningRate;
+    private int batchSize = 1;
+    private int threads = 1;
+    private boolean hogwild;
+    private GenerateurAleatoire random = new GenerateurAleatoire();
+    private int evaluationInterval = 1;
+    private int evaluationSubsample;
+    private long cacheMemoireMax = CACHE_MEMOIRE_DEFAUT;
+    private int prefetchTampons;
+    private int prefetchProducteurs = 1;
+    private long attentePrefetchCalculMs;
+    private long attentePrefetchProducteursMs;
+
+    // Critères d'arrêt anticipé (voir setPatience, setPrecisionCible,
+    // setBudgetTempsMs) et restauration du meilleur modèle
+    private Imagette[] validation;
+    private int patience;
+    private double precisionCible = Double.NaN;
+    private boolean arretPrecisionCible;
+    private long budgetTempsMs;
+    private boolean restaurerMeilleur;
+
+    // Points de reprise (voir setPointsReprise)
+    private Path fichierReprise;
+    private int intervalleReprise;
+
+    /**
+     * Mémoire maximale par défaut d'un cache d'entrées (256 Mo : tout MNIST)
+     */
+    public static final long CACHE_MEMOIRE_DEFAUT = 256L * 1024 * 1024;
+
+    // Entrées normalisées de l'entraînement, de la validation et du dernier
+    // ensemble évalué
+    private CacheEntrees cacheEntrainement;
+    private CacheEntrees cacheValidation;
+    private CacheEntrees cacheEvaluation;
+
+    // Sorties attendues (une par étiquette), partagées en lecture seule
+    private double[][] sortiesAttendues;
+
+    // État d'un apprentissage en cours (voir preparerEntrainement)
+    private ParallelTrainer trainer;
+    private ForkJoinPool hogwildPool;
+    private MLPWorkspace[] hogwildWorkspaces;
+    private BatchWorkspace lotWorkspace;
+    private PipelineLots pipeline;
+    private ExecutorService ecritureReprise;
+    private MLPWorkspace entrainementWorkspace;
+    private int correctEpoque;
 
     // Statistiques d'entraînement
     private List<Double> trainErrors;
     private List<Double> trainAccuracies;
     private List<Double> testAccuracies;
+    private List<Double> validationAccuracies;
     private long trainingTimeMs;
+    private double precisionTestFinale = Double.NaN;
+    private int meilleureEpoque;
+    private double meilleurePrecision = Double.NaN;
+    private int epoquePrecisionCible;
+    private long tempsPrecisionCibleMs = -1;
+    private String raisonArret;
 
     public MLPClassification(Imagette[] donneesEntrainement, int[] layers,
             double learningRate, TransferFunction transferFunction,
             boolean shuffle, boolean decayLearningRate) {
+        this(donneesEntrainement, layers, learningRate, MLP.parCouche(transferFunction, layers.length),
+                shuffle, decayLearningRate);
+    }
+
+    /**
+     * @param transferFunctions fonction de transfert de chaque couche après
+     *                          l'entrée (layers.length - 1 fonctions)
+     */
+    public MLPClassification(Imagette[] donneesEntrainement, int[] layers,
+            double learningRate, TransferFunction[] transferFunctions,
+            boolean shuffle, boolean decayLearningRate) {
+        this(donneesEntrainement, new MLP(layers, learningRate, transferFunctions), shuffle, decayLearningRate);
+    }
+
+    /**
+     * Classification avec un réseau déjà construit (voir charger)
+     */
+    private MLPClassification(Imagette[] donneesEntrainement, MLP reseau,
+            boolean shuffle, boolean decayLearningRate) {
         super(donneesEntrainement);
-        this.inputSize = layers[0];
-        this.outputSize = layers[layers.length - 1];
+        this.inputSize = reseau.getInputLayerSize();
+        this.outputSize = reseau.getOutputLayerSize();
         this.shuffle = shuffle;
-        this.initialLearningRate = learningRate;
+        this.initialLearningRate = reseau.getLearningRate();
         this.decayLearningRate = decayLearningRate;
-        this.mlp = new MLP(layers, learningRate, transferFunction);
+        this.mlp = reseau;
+        this.precision = reseau.getPrecision();
         this.trainErrors = new ArrayList<>();
         this.trainAccuracies = new ArrayList<>();
         this.testAccuracies = new ArrayList<>();
+        this.validationAccuracies = new ArrayList<>();
+        this.sortiesAttendues = new double[outputSize][];
+        for (int label = 0; label < outputSize; label++) {
+            this.sortiesAttendues[label] = labelToOutput(label);
+        }
+    }
+
+    /**
+     * Classification sans imagettes d'entraînement en mémoire, pour un
+     * apprentissage en flux (entrainer(SourceLots, int, Imagette[]))
+     */
+    public MLPClassification(int[] layers, double learningRate, TransferFunction transferFunction,
+            boolean shuffle, boolean decayLearningRate) {
+        this(new Imagette[0], layers, learningRate, transferFunction, shuffle, decayLearningRate);
     }
 
-    private double[] imagetteToInput(Imagette img) {
-        double[] input = new double[inputSize];
-        int idx = 0;
-        for (int i = 0; i < img.getLignes(); i++) {
-            for (int j = 0; j < img.getColonnes(); j++) {
-                input[idx++] = img.getValeur(i, j) / 255.0;
+    /**
+     * Enregistre le réseau appris (voir MLP.sauvegarder) : le modèle peut
+     * ensuite être rechargé par charger sans refaire l'apprentissage
+     *
+     * @param fichier nom du fichier créé ou remplacé
+     * @throws IOException problème d'écriture
+     */
+    public void sauvegarder(String fichier) throws IOException {
+        mlp.sauvegarder(fichier);
+    }
+
+    /**
+     * Classification prête à prédire à partir d'un modèle enregistré par
+     * sauvegarder, dans sa précision d'origine. Elle n'a pas d'imagettes
+     * d'entraînement : un nouvel apprentissage se fait en flux
+     * (entrainer(SourceLots, int, Imagette[])).
+     *
+     * @param fichier nom du fichier du modèle
+     * @throws IOException problème de lecture ou fichier qui n'est pas un
+     *                     modèle
+     */
+    public static MLPClassification charger(String fichier) throws IOException {
+        return new MLPClassification(new Imagette[0], MLP.charger(fichier), true, false);
+    }
+
+    /**
+     * Zone de travail et tampon d'entrée propres à chaque thread qui appelle
+     * predire : la prédiction est sans allocation et peut être faite par
+     * plusieurs threads en même temps.
+     *
+     * Le contexte ne référence pas ce classifieur (classe statique) : sinon
+     * la valeur du ThreadLocal retiendrait sa clé, et chaque classifieur
+     * ayant prédit resterait en mémoire (avec ses caches) tant que le thread
+     * vit.
+     */
+    private final ThreadLocal<ContextePrediction> contextes =
+            ThreadLocal.withInitial(() -> new ContextePrediction(mlp, inputSize));
+
+    private static final class ContextePrediction {
+        // réseau pour lequel les zones de travail ont été créées
+        final MLP reseau;
+        final int inputSize;
+        final MLPWorkspace workspace;
+        final double[] input;
+
+        ContextePrediction(MLP reseau, int inputSize) {
+            this.reseau = reseau;
+            this.inputSize = inputSize;
+            this.workspace = reseau.createWorkspace();
+            this.input = new double[inputSize];
+        }
+
+        // Tampons de prédiction par lot, créés au premier appel de predireLot
+        BatchWorkspace lot;
+        double[][] inputs;
+
+        void preparerLot() {
+            if (lot == null) {
+                lot = reseau.createBatchWorkspace(TAILLE_LOT_PREDICTION);
+                inputs = new double[TAILLE_LOT_PREDICTION][inputSize];
             }
         }
-        return input;
+    }
+
+    /**
+     * @return le contexte de prédiction du thread appelant, recréé si le
+     *         réseau a changé (setPrecision)
+     */
+    private ContextePrediction contexte() {
+        ContextePrediction contexte = contextes.get();
+        if (contexte.reseau != mlp) {
+            contexte = new ContextePrediction(mlp, inputSize);
+            contextes.set(contexte);
+        }
+        return contexte;
+    }
+
+    /**
+     * Nombre d'imagettes propagées ensemble par predireLot
+     */
+    private static final int TAILLE_LOT_PREDICTION = 256;
+
+    /**
+     * Nombre d'exemples lus à la fois dans une source en flux quand
+     * l'apprentissage se fait exemple par exemple
+     */
+    private static final int TAILLE_LOT_FLUX = 64;
+
+    private double[] imagetteToInput(Imagette img, double[] input) {
+        return CacheEntrees.normaliser(img, input);
+    }
+
+    /**
+     * Cache des entrées normalisées de data : celui de l'entraînement, de la
+     * validation, ou celui du dernier ensemble évalué (reconstruit si data a changé)
+     *
+     * @return le cache, ou null si le cache est désactivé
+     */
+    private synchronized CacheEntrees cachePour(Imagette[] data) {
+        if (cacheMemoireMax <= 0) {
+            return null;
+        }
+        if (data == donneesEntrainement) {
+            if (cacheEntrainement == null) {
+                cacheEntrainement = new CacheEntrees(data, inputSize, cacheMemoireMax);
+            }
+            return cacheEntrainement;
+        }
+        if (data == validation) {
+            if (cacheValidation == null) {
+                cacheValidation = new CacheEntrees(data, inputSize, cacheMemoireMax);
+            }
+            return cacheValidation;
+        }
+        if (cacheEvaluation == null || !cacheEvaluation.concerne(data)) {
+            cacheEvaluation = new CacheEntrees(data, inputSize, cacheMemoireMax);
+        }
+        return cacheEvaluation;
+    }
+
+    /**
+     * Entrée normalisée de l'imagette idx de data, écrite dans input
+     */
+    private double[] entree(Imagette[] data, CacheEntrees cache, int idx, double[] input) {
+        if (cache != null) {
+            return cache.lire(idx, input);
+        }
+        return imagetteToInput(data[idx], input);
     }
 
     private double[] labelToOutput(int label) {
@@ -56,11 +275,19 @@ public class MLPClassification extends AlgoClassification {
     }
 
     private int outputToLabel(double[] output) {
+        return outputToLabel(output, 0);
+    }
+
+    /**
+     * @param outputs sorties de plusieurs exemples, une ligne par exemple
+     * @param offset  début de la ligne de l'exemple
+     */
+    private int outputToLabel(double[] outputs, int offset) {
         int maxIdx = 0;
-        double maxVal = output[0];
-        for (int i = 1; i < output.length; i++) {
-            if (output[i] > maxVal) {
-                maxVal = output[i];
+        double maxVal = outputs[offset];
+        for (int i = 1; i < outputSize; i++) {
+            if (outputs[offset + i] > maxVal) {
+                maxVal = outputs[offset + i];
                 maxIdx = i;
             }
         }
@@ -68,60 +295,529 @@ public class MLPClassification extends AlgoClassification {
     }
 
     public void entrainer(int epochs, Imagette[] testSet) {
+        entrainer(epochs, testSet, null);
+    }
+
+    /**
+     * Apprentissage sur des exemples lus en flux (par exemple FluxIDX) au
+     * lieu des imagettes d'entraînement en mémoire. Le mode Hogwild n'est
+     * pas disponible dans ce cas.
+     *
+     * @param source  source des exemples d'apprentissage
+     * @param epochs  nombre d'époques
+     * @param testSet ensemble de test (peut être null)
+     * @throws IOException problème de lecture de la source
+     */
+    public void entrainer(SourceLots source, int epochs, Imagette[] testSet) throws IOException {
+        if (hogwild && threads > 1)
+            throw new IllegalStateException("mode Hogwild impossible avec une source en flux");
+        if (source.tailleEntree() != inputSize)
+            throw new IllegalArgumentException("taille d'entree de la source : " + source.tailleEntree());
+        try {
+            entrainer(epochs, testSet, source);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * @param source source des exemples, ou null pour les imagettes
+     *               d'entraînement en mémoire
+     */
+    private void entrainer(int epochs, Imagette[] testSet, SourceLots source) {
         long startTime = System.currentTimeMillis();
+        if (validation == null && (patience > 0 || restaurerMeilleur)) {
+            System.err.println("Attention : pas d'ensemble de validation (setValidation), l'arrêt anticipé et "
+                    + "le meilleur modèle sont choisis sur le test : la précision de test finale est optimiste");
+        }
+        int nbExemples = source != null ? source.taille() : donneesEntrainement.length;
+
+        // Reprise d'un apprentissage interrompu : le réseau, l'optimiseur, le
+        // générateur aléatoire et les statistiques sont ceux du point de reprise
+        PointReprise reprise = null;
+        if (fichierReprise != null && Files.exists(fichierReprise)) {
+            try {
+                reprise = PointReprise.lire(fichierReprise, mlp, epochs, donneesEntrainement.length,
+                        testSet != null ? testSet.length : 0);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            random = reprise.random;
+            trainErrors = reprise.trainErrors;
+            trainAccuracies = reprise.trainAccuracies;
+            testAccuracies = reprise.testAccuracies;
+            validationAccuracies = reprise.validationAccuracies;
+            startTime -= reprise.tempsMs;
+            if (reprise.epoquesFaites >= epochs || reprise.raisonArret != null) {
+                System.out.printf("Apprentissage déjà terminé (%s)%n", fichierReprise);
+            } else {
+                System.out.printf("Reprise à l'époque %d depuis %s%n", reprise.epoquesFaites + 1, fichierReprise);
+            }
+        }
 
         List<Integer> indices = new ArrayList<>();
-        for (int i = 0; i < donneesEntrainement.length; i++) {
-            indices.add(i);
+        if (reprise != null) {
+            for (int idx : reprise.indices) {
+                indices.add(idx);
+            }
+        } else {
+            for (int i = 0; i < donneesEntrainement.length; i++) {
+                indices.add(i);
+            }
         }
 
-        for (int epoch = 0; epoch < epochs; epoch++) {
-            double totalError = 0.0;
+        // Sous-ensemble de test fixe utilisé pour les évaluations intermédiaires
+        // (positions dans testSet)
+        int[] sousEnsembleTest = null;
+        if (reprise != null) {
+            sousEnsembleTest = reprise.sousEnsembleTest;
+        } else if (testSet != null && evaluationSubsample > 0 && evaluationSubsample < testSet.length) {
+            List<Integer> melange = new ArrayList<>();
+            for (int i = 0; i < testSet.length; i++) {
+                melange.add(i);
+            }
+            Collections.shuffle(melange, random);
+            sousEnsembleTest = melange.subList(0, evaluationSubsample).stream().mapToInt(Integer::intValue).toArray();
+        }
+        Imagette[] testEvaluation = testSet;
+        if (testSet != null && sousEnsembleTest != null) {
+            testEvaluation = new Imagette[sousEnsembleTest.length];
+            for (int i = 0; i < sousEnsembleTest.length; i++) {
+                testEvaluation[i] = testSet[sousEnsembleTest[i]];
+            }
+        }
+
+        // Suivi des critères d'arrêt : précision de validation si un ensemble
+        // de validation est donné, sinon précision de test des époques évaluées
+        precisionTestFinale = Double.NaN;
+        meilleureEpoque = 0;
+        meilleurePrecision = Double.NaN;
+        epoquePrecisionCible = 0;
+        tempsPrecisionCibleMs = -1;
+        raisonArret = null;
+        double[][][] meilleursParametres = null;
+        int epoquesFaites = 0;
+        if (reprise != null) {
+            meilleureEpoque = reprise.meilleureEpoque;
+            meilleurePrecision = reprise.meilleurePrecision;
+            epoquePrecisionCible = reprise.epoquePrecisionCible;
+            tempsPrecisionCibleMs = reprise.tempsPrecisionCibleMs;
+            raisonArret = reprise.raisonArret;
+            meilleursParametres = reprise.meilleursParametres;
+            epoquesFaites = reprise.epoquesFaites;
+        }
+
+        preparerEntrainement(source != null);
+        try {
+            for (int epoch = epoquesFaites; epoch < epochs && raisonArret == null; epoch++) {
+                if (shuffle) {
+                    Collections.shuffle(indices, random);
+                }
+
+                if (decayLearningRate) {
+                    // plancher de 0.01, ou de 2 % du taux initial s'il est plus
+                    // petit (taux de l'ordre de 0.001 avec Adam)
+                    double newRate = initialLearningRate * (1.0 - (double) epoch / epochs);
+                    mlp.setLearningRate(Math.max(Math.min(0.01, 0.02 * initialLearningRate), newRate));
+                }
+
+                correctEpoque = 0;
+                epoquesFaites = epoch + 1;
+                double totalError = source != null ? entrainerEpoque(source) : entrainerEpoque(indices);
+
+                double avgError = totalError / nbExemples;
+                trainErrors.add(avgError);
 
-            if (shuffle) {
-                Collections.shuffle(indices);
+                // Précision d'entraînement mesurée pendant l'époque, sur les
+                // propagations avant déjà faites par la rétropropagation
+                double trainAcc = (double) correctEpoque / nbExemples;
+                trainAccuracies.add(trainAcc);
+
+                // Évaluation sur le test toutes les evaluationInterval époques,
+                // et toujours sur tout l'ensemble de test à la dernière époque
+                // (y compris celle d'un arrêt anticipé)
+                if (budgetTempsMs > 0 && System.currentTimeMillis() - startTime >= budgetTempsMs) {
+                    raisonArret = "budget de temps épuisé";
+                }
+                boolean derniere = epoch == epochs - 1 || raisonArret != null;
+                boolean evaluee = derniere || (epoch + 1) % evaluationInterval == 0;
+                double testAcc = Double.NaN;
+                if (testSet != null && evaluee) {
+                    testAcc = calculerPrecision(derniere ? testSet : testEvaluation);
+                }
+                double suivi = testAcc;
+                if (validation != null) {
+                    suivi = evaluee ? calculerPrecision(validation) : Double.NaN;
+                    validationAccuracies.add(suivi);
+                }
+
+                if (!Double.isNaN(suivi)) {
+                    if (Double.isNaN(meilleurePrecision) || suivi > meilleurePrecision) {
+                        meilleurePrecision = suivi;
+                        meilleureEpoque = epoch + 1;
+                        if (restaurerMeilleur) {
+                            if (meilleursParametres == null)
+                                meilleursParametres = mlp.allouerParametres();
+                            mlp.exporterParametres(meilleursParametres[0], meilleursParametres[1]);
+                        }
+                    }
+                    if (!Double.isNaN(precisionCible) && epoquePrecisionCible == 0 && suivi >= precisionCible) {
+                        epoquePrecisionCible = epoch + 1;
+                        tempsPrecisionCibleMs = System.currentTimeMillis() - startTime;
+                        if (arretPrecisionCible && raisonArret == null)
+                            raisonArret = "précision cible atteinte";
+                    }
+                    if (patience > 0 && raisonArret == null && epoch + 1 - meilleureEpoque >= patience) {
+                        raisonArret = "pas de progrès depuis " + patience + " époques";
+                    }
+                    if (raisonArret != null && !derniere && testSet != null) {
+                        // l'époque d'arrêt devient la dernière : évaluée sur tout le test
+                        if (testEvaluation != testSet)
+                            testAcc = calculerPrecision(testSet);
+                    }
+                }
+                if (testSet != null) {
+                    testAccuracies.add(testAcc);
+                }
+
+                if ((epoch + 1) % 5 == 0 || epoch == 0 || raisonArret != null) {
+                    System.out.printf("Epoch %3d/%d - Erreur: %.4f - Train: %.2f%%",
+                            epoch + 1, epochs, avgError, trainAcc * 100);
+                    if (testSet != null && !Double.isNaN(testAccuracies.get(testAccuracies.size() - 1))) {
+                        System.out.printf(" - Test: %.2f%%", testAccuracies.get(testAccuracies.size() - 1) * 100);
+                    }
+                    System.out.println();
+                }
+
+                if (fichierReprise != null && (epoquesFaites % intervalleReprise == 0 || epoquesFaites == epochs
+                        || raisonArret != null)) {
+                    enregistrerReprise(epochs, epoquesFaites, indices, sousEnsembleTest, meilleursParametres,
+                            System.currentTimeMillis() - startTime);
+                }
             }
+        } finally {
+            terminerEntrainement();
+        }
+        if (raisonArret != null) {
+            System.out.printf("Arrêt anticipé à l'époque %d : %s%n", epoquesFaites, raisonArret);
+        }
+
+        // Meilleur modèle rendu à la place du dernier, évalué sur tout le test
+        if (meilleursParametres != null && meilleureEpoque != epoquesFaites) {
+            mlp.importerParametres(meilleursParametres[0], meilleursParametres[1]);
+            if (testSet != null)
+                precisionTestFinale = calculerPrecision(testSet);
+            System.out.printf("Restauration du meilleur modèle (époque %d, %.2f%%)%n",
+                    meilleureEpoque, meilleurePrecision * 100);
+        }
+
+        trainingTimeMs = System.currentTimeMillis() - startTime;
+    }
 
-            if (decayLearningRate) {
-                double newRate = initialLearningRate * (1.0 - (double) epoch / epochs);
-                mlp.setLearningRate(Math.max(0.01, newRate));
+    /**
+     * Encode l'état de l'apprentissage après epoquesFaites époques et le
+     * confie au thread d'écriture des points de reprise
+     */
+    private void enregistrerReprise(int epochs, int epoquesFaites, List<Integer> indices, int[] sousEnsembleTest,
+            double[][][] meilleursParametres, long tempsMs) {
+        PointReprise point = new PointReprise();
+        point.epoques = epochs;
+        point.epoquesFaites = epoquesFaites;
+        point.random = random;
+        point.indices = indices.stream().mapToInt(Integer::intValue).toArray();
+        point.sousEnsembleTest = sousEnsembleTest;
+        point.trainErrors = trainErrors;
+        point.trainAccuracies = trainAccuracies;
+        point.testAccuracies = testAccuracies;
+        point.validationAccuracies = validationAccuracies;
+        point.tempsMs = tempsMs;
+        point.meilleureEpoque = meilleureEpoque;
+        point.meilleurePrecision = meilleurePrecision;
+        point.epoquePrecisionCible = epoquePrecisionCible;
+        point.tempsPrecisionCibleMs = tempsPrecisionCibleMs;
+        point.raisonArret = raisonArret;
+        point.meilleursParametres = meilleursParametres;
+
+        byte[] donnees;
+        try {
+            donnees = point.encoder(mlp);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Path fichier = fichierReprise;
+        ecritureReprise.execute(() -> {
+            try {
+                PointReprise.ecrire(donnees, fichier);
+            } catch (IOException e) {
+                System.err.println("Erreur écriture du point de reprise: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Crée les zones de travail et les pools de threads du mode d'apprentissage
+     * choisi
+     */
+    private void preparerEntrainement(boolean enFlux) {
+        if (fichierReprise != null) {
+            ecritureReprise = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "points-reprise");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        if (prefetchTampons > 0 && !(threads > 1 && hogwild)) {
+            // une source en flux se lit dans l'ordre : un seul producteur
+            int tailleLot = batchSize > 1 ? batchSize : TAILLE_LOT_FLUX;
+            pipeline = new PipelineLots(inputSize, tailleLot, prefetchTampons, enFlux ? 1 : prefetchProducteurs);
+        }
+        if (threads > 1 && hogwild) {
+            hogwildPool = new ForkJoinPool(threads);
+            hogwildWorkspaces = new MLPWorkspace[threads];
+            for (int t = 0; t < threads; t++) {
+                hogwildWorkspaces[t] = mlp.createWorkspace();
             }
+        } else if (threads > 1 && batchSize > 1) {
+            trainer = new ParallelTrainer(mlp, threads, batchSize);
+        } else if (batchSize > 1) {
+            lotWorkspace = mlp.createBatchWorkspace(batchSize);
+        } else {
+            entrainementWorkspace = mlp.createWorkspace();
+        }
+    }
 
+    private void terminerEntrainement() {
+        if (pipeline != null) {
+            pipeline.close();
+            attentePrefetchCalculMs = pipeline.getAttenteCalculNanos() / 1_000_000;
+            attentePrefetchProducteursMs = pipeline.getAttenteProducteursNanos() / 1_000_000;
+            System.out.printf("Prefetch - attente du calcul: %d ms - attente des producteurs: %d ms%n",
+                    attentePrefetchCalculMs, attentePrefetchProducteursMs);
+        }
+        if (trainer != null) {
+            trainer.close();
+        }
+        if (hogwildPool != null) {
+            hogwildPool.shutdown();
+        }
+        if (ecritureReprise != null) {
+            // le dernier point de reprise est sur le disque au retour de entrainer
+            ecritureReprise.shutdown();
+            try {
+                ecritureReprise.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        ecritureReprise = null;
+        pipeline = null;
+        trainer = null;
+        hogwildPool = null;
+        hogwildWorkspaces = null;
+        lotWorkspace = null;
+        entrainementWorkspace = null;
+    }
+
+    /**
+     * Une époque d'apprentissage sur les imagettes d'entraînement, dans l'ordre
+     * des indices. Compte dans correctEpoque les exemples bien classés par les
+     * propagations avant de l'apprentissage.
+     *
+     * @return somme des erreurs de l'époque
+     */
+    private double entrainerEpoque(List<Integer> indices) {
+        CacheEntrees cache = cachePour(donneesEntrainement);
+        double totalError = 0.0;
+        if (hogwildPool != null) {
+            totalError += entrainerHogwild(indices, cache);
+        } else if (pipeline != null) {
+            // les producteurs remplissent les lots à partir des indices
+            int n = indices.size();
+            totalError += entrainerEpoque((numLot, inputs, labels) -> {
+                int from = numLot * inputs.length;
+                int count = Math.max(0, Math.min(inputs.length, n - from));
+                for (int b = 0; b < count; b++) {
+                    int idx = indices.get(from + b);
+                    entree(donneesEntrainement, cache, idx, inputs[b]);
+                    labels[b] = donneesEntrainement[idx].getLabel();
+                }
+                return count;
+            });
+        } else if (batchSize <= 1) {
+            double[] input = new double[inputSize];
             for (int idx : indices) {
-                Imagette img = donneesEntrainement[idx];
-                double[] input = imagetteToInput(img);
-                double[] expectedOutput = labelToOutput(img.getLabel());
-                totalError += mlp.backPropagate(input, expectedOutput);
+                entree(donneesEntrainement, cache, idx, input);
+                totalError += entrainerExemple(input, donneesEntrainement[idx].getLabel());
             }
+        } else {
+            double[][] inputs = new double[batchSize][inputSize];
+            double[][] expectedOutputs = new double[batchSize][];
+            int count = 0;
+            for (int idx : indices) {
+                entree(donneesEntrainement, cache, idx, inputs[count]);
+                expectedOutputs[count] = sortiesAttendues[donneesEntrainement[idx].getLabel()];
+                count++;
+                if (count == batchSize) {
+                    totalError += entrainerLot(inputs, expectedOutputs, count) * count;
+                    count = 0;
+                }
+            }
+            if (count > 0) {
+                totalError += entrainerLot(inputs, expectedOutputs, count) * count;
+            }
+        }
+        return totalError;
+    }
 
-            double avgError = totalError / donneesEntrainement.length;
-            trainErrors.add(avgError);
+    /**
+     * Une époque d'apprentissage sur les exemples lus en flux
+     *
+     * @return somme des erreurs de l'époque
+     */
+    private double entrainerEpoque(SourceLots source) {
+        int taille = batchSize > 1 ? batchSize : TAILLE_LOT_FLUX;
+        double totalError = 0.0;
+        try {
+            source.nouvelleEpoque(shuffle ? random : null);
+            if (pipeline != null) {
+                return entrainerEpoque((numLot, inputs, labels) -> source.lotSuivant(inputs, labels));
+            }
 
-            double trainAcc = calculerPrecision(donneesEntrainement);
-            trainAccuracies.add(trainAcc);
+            double[][] inputs = new double[taille][inputSize];
+            int[] labels = new int[taille];
+            int count;
+            while ((count = source.lotSuivant(inputs, labels)) > 0) {
+                totalError += entrainerEtiquetes(inputs, labels, count);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return totalError;
+    }
 
-            if (testSet != null) {
-                double testAcc = calculerPrecision(testSet);
-                testAccuracies.add(testAcc);
+    /**
+     * Une époque dont les lots sont préparés en arrière-plan par le pipeline
+     *
+     * @param producteur remplissage des lots de l'époque
+     * @return somme des erreurs de l'époque
+     */
+    private double entrainerEpoque(PipelineLots.Producteur producteur) {
+        double totalError = 0.0;
+        pipeline.demarrerEpoque(producteur);
+        try {
+            PipelineLots.Lot lot;
+            while ((lot = pipeline.prendre()) != null) {
+                totalError += entrainerEtiquetes(lot.inputs, lot.labels, lot.count);
+                pipeline.rendre(lot);
             }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        return totalError;
+    }
 
-            if ((epoch + 1) % 5 == 0 || epoch == 0) {
-                System.out.printf("Epoch %3d/%d - Erreur: %.4f - Train: %.2f%%",
-                        epoch + 1, epochs, avgError, trainAcc * 100);
-                if (testSet != null) {
-                    System.out.printf(" - Test: %.2f%%", testAccuracies.get(testAccuracies.size() - 1) * 100);
-                }
-                System.out.println();
+    /**
+     * Apprentissage sur count exemples donnés par leur entrée et leur
+     * étiquette : en un lot, ou exemple par exemple si la taille de lot est 1
+     *
+     * @return somme des erreurs des exemples
+     */
+    private double entrainerEtiquetes(double[][] inputs, int[] labels, int count) {
+        if (batchSize <= 1) {
+            double totalError = 0.0;
+            for (int b = 0; b < count; b++) {
+                totalError += entrainerExemple(inputs[b], labels[b]);
             }
+            return totalError;
         }
+        double[][] expectedOutputs = new double[count][];
+        for (int b = 0; b < count; b++) {
+            expectedOutputs[b] = sortiesAttendues[labels[b]];
+        }
+        return entrainerLot(inputs, expectedOutputs, count) * count;
+    }
 
-        trainingTimeMs = System.currentTimeMillis() - startTime;
+    /**
+     * Rétropropagation d'un exemple (apprentissage exemple par exemple)
+     *
+     * @return erreur de l'exemple
+     */
+    private double entrainerExemple(double[] input, int label) {
+        double error = mlp.backPropagate(input, sortiesAttendues[label], entrainementWorkspace);
+        if (outputToLabel(entrainementWorkspace.getOutput()) == label) {
+            correctEpoque++;
+        }
+        return error;
+    }
+
+    /**
+     * Apprentissage sur un lot, réparti entre les threads si un entraîneur
+     * parallèle est prévu
+     *
+     * @return erreur moyenne du lot
+     */
+    private double entrainerLot(double[][] inputs, double[][] expectedOutputs, int count) {
+        double error;
+        if (trainer != null) {
+            error = trainer.trainBatch(mlp, inputs, expectedOutputs, count);
+            correctEpoque += trainer.getCorrect();
+        } else {
+            error = mlp.trainBatch(inputs, expectedOutputs, count, lotWorkspace);
+            correctEpoque += lotWorkspace.correct;
+        }
+        return error;
+    }
+
+    /**
+     * Une époque en mode Hogwild : chaque thread parcourt sa part des indices
+     * et met à jour les poids partagés après chaque exemple, sans verrou,
+     * avec sa propre zone de travail
+     *
+     * @return somme des erreurs de l'époque
+     */
+    private double entrainerHogwild(List<Integer> indices, CacheEntrees cache) {
+        int n = indices.size();
+        int nbParts = hogwildWorkspaces.length;
+        int[] corrects = new int[nbParts];
+        List<ForkJoinTask<Double>> parts = new ArrayList<>();
+        for (int t = 0; t < nbParts; t++) {
+            int part = t;
+            int from = (int) ((long) n * t / nbParts);
+            int to = (int) ((long) n * (t + 1) / nbParts);
+            MLPWorkspace ws = hogwildWorkspaces[t];
+            parts.add(hogwildPool.submit(() -> {
+                double[] input = new double[inputSize];
+                double error = 0.0;
+                for (int i = from; i < to; i++) {
+                    int idx = indices.get(i);
+                    int label = donneesEntrainement[idx].getLabel();
+                    entree(donneesEntrainement, cache, idx, input);
+                    error += mlp.backPropagate(input, sortiesAttendues[label], ws);
+                    if (outputToLabel(ws.getOutput()) == label) {
+                        corrects[part]++;
+                    }
+                }
+                return error;
+            }));
+        }
+
+        double totalError = 0.0;
+        for (int t = 0; t < nbParts; t++) {
+            totalError += parts.get(t).join();
+            correctEpoque += corrects[t];
+        }
+        return totalError;
     }
 
     public double calculerPrecision(Imagette[] data) {
+        int[] predictions = predireLot(data);
         int correct = 0;
-        for (Imagette img : data) {
-            if (predire(img) == img.getLabel()) {
+        for (int i = 0; i < data.length; i++) {
+            if (predictions[i] == data[i].getLabel()) {
                 correct++;
             }
         }
@@ -130,11 +826,298 @@ public class MLPClassification extends AlgoClassification {
 
     @Override
     public int predire(Imagette img) {
-        double[] input = imagetteToInput(img);
-        double[] output = mlp.execute(input);
+        ContextePrediction contexte = contexte();
+        imagetteToInput(img, contexte.input);
+        double[] output = mlp.execute(contexte.input, contexte.workspace);
         return outputToLabel(output);
     }
 
+    /**
+     * Taille des lots d'apprentissage (1 = mise à jour après chaque exemple)
+     *
+     * @param batchSize nombre d'exemples par mise à jour des poids
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1)
+            throw new IllegalArgumentException("taille de lot invalide : " + batchSize);
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Nombre de threads pour l'apprentissage parallèle. Chaque lot est réparti
+     * entre les threads et leurs gradients sont sommés avant la mise à jour :
+     * le mode parallèle ne s'applique donc qu'avec une taille de lot > 1.
+     * En mode Hogwild (setHogwild), chaque thread traite une part de l'époque.
+     *
+     * @param threads nombre de threads (1 = apprentissage séquentiel)
+     */
+    public void setThreads(int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("nombre de threads invalide : " + threads);
+        this.threads = threads;
+    }
+
+    /**
+     * Active le mode asynchrone Hogwild : avec setThreads(n > 1), n threads
+     * appliquent chacun des mises à jour exemple par exemple sur les mêmes
+     * poids, sans verrou ni synchronisation. Les écritures concurrentes
+     * peuvent se chevaucher, ce qui est toléré par ce mode ; les résultats
+     * ne sont donc pas reproductibles.
+     *
+     * @param hogwild true pour le mode asynchrone
+     */
+    public void setHogwild(boolean hogwild) {
+        this.hogwild = hogwild;
+    }
+
+    /**
+     * Fréquence d'évaluation sur l'ensemble de test pendant l'apprentissage.
+     * Les époques non évaluées ont une précision de test NaN ; la dernière
+     * époque est toujours évaluée.
+     *
+     * @param interval évaluer toutes les interval époques (1 = chaque époque)
+     */
+    public void setEvaluationInterval(int interval) {
+        if (interval < 1)
+            throw new IllegalArgumentException("intervalle d'évaluation invalide : " + interval);
+        this.evaluationInterval = interval;
+    }
+
+    /**
+     * Évalue les époques intermédiaires sur un sous-ensemble aléatoire fixe
+     * de l'ensemble de test (tiré une fois au début de entrainer). La
+     * dernière époque est toujours évaluée sur tout l'ensemble de test.
+     *
+     * @param taille nombre d'imagettes du sous-ensemble (0 = tout le test)
+     */
+    public void setEvaluationSubsample(int taille) {
+        if (taille < 0)
+            throw new IllegalArgumentException("taille de sous-ensemble invalide : " + taille);
+        this.evaluationSubsample = taille;
+    }
+
+    /**
+     * Mémoire maximale de chaque cache d'entrées normalisées (entraînement
+     * et dernier ensemble évalué). Au-delà, les imagettes restantes sont
+     * normalisées à chaque utilisation.
+     *
+     * @param octets mémoire maximale en octets (0 = pas de cache)
+     */
+    public void setCacheMemoireMax(long octets) {
+        if (octets < 0)
+            throw new IllegalArgumentException("mémoire de cache invalide : " + octets);
+        this.cacheMemoireMax = octets;
+        this.cacheEntrainement = null;
+        this.cacheValidation = null;
+        this.cacheEvaluation = null;
+    }
+
+    /**
+     * Prépare les lots d'apprentissage en arrière-plan : des threads
+     * producteurs normalisent les lots suivants dans un anneau de tampons
+     * pendant que le thread de calcul apprend (sans effet en mode Hogwild).
+     * Une source en flux n'utilise qu'un producteur.
+     *
+     * @param tampons     nombre de lots préparés à l'avance (0 = pas de préparation
+     *                    en arrière-plan)
+     * @param producteurs nombre de threads producteurs
+     */
+    public void setPrefetch(int tampons, int producteurs) {
+        if (tampons < 0 || producteurs < 1)
+            throw new IllegalArgumentException("prefetch invalide : " + tampons + " tampons, "
+                    + producteurs + " producteurs");
+        this.prefetchTampons = tampons;
+        this.prefetchProducteurs = producteurs;
+    }
+
+    /**
+     * Ensemble de validation sur lequel sont suivis les critères d'arrêt et
+     * le meilleur modèle, aux époques évaluées (setEvaluationInterval). Sans
+     * ensemble de validation, le suivi se fait sur la précision de test
+     * (un avertissement est affiché avec setPatience ou setRestaurerMeilleur) :
+     * la précision de test finale n'est alors plus une mesure indépendante.
+     *
+     * @param validation imagettes de validation (null = suivi sur le test)
+     */
+    public synchronized void setValidation(Imagette[] validation) {
+        this.validation = validation;
+        this.cacheValidation = null;
+    }
+
+    /**
+     * Arrête l'apprentissage quand la précision suivie n'a pas progressé
+     * pendant patience époques (vérifié aux époques évaluées). La précision
+     * suivie est celle de validation (setValidation).
+     *
+     * @param patience nombre d'époques sans progrès (0 = pas d'arrêt)
+     */
+    public void setPatience(int patience) {
+        if (patience < 0)
+            throw new IllegalArgumentException("patience invalide : " + patience);
+        this.patience = patience;
+    }
+
+    /**
+     * Précision cible : la première époque où la précision suivie l'atteint
+     * et le temps écoulé depuis le début de l'apprentissage sont enregistrés
+     * (getEpoquePrecisionCible, getTempsPrecisionCibleMs)
+     *
+     * @param cible   précision entre 0 et 1 (NaN = pas de cible)
+     * @param arreter arrêter l'apprentissage dès que la cible est atteinte
+     */
+    public void setPrecisionCible(double cible, boolean arreter) {
+        if (cible < 0 || cible > 1)
+            throw new IllegalArgumentException("précision cible invalide : " + cible);
+        this.precisionCible = cible;
+        this.arretPrecisionCible = arreter;
+    }
+
+    /**
+     * Arrête l'apprentissage à la fin de la première époque qui dépasse le
+     * budget (évaluations comprises)
+     *
+     * @param budgetMs temps maximal en ms (0 = pas de limite)
+     */
+    public void setBudgetTempsMs(long budgetMs) {
+        if (budgetMs < 0)
+            throw new IllegalArgumentException("budget de temps invalide : " + budgetMs);
+        this.budgetTempsMs = budgetMs;
+    }
+
+    /**
+     * À la fin de l'apprentissage, remet les poids de l'époque de meilleure
+     * précision suivie au lieu de ceux de la dernière époque. La précision
+     * finale de test (getFinalTestAccuracy) est alors celle de ce modèle,
+     * choisi sur l'ensemble de validation (setValidation).
+     *
+     * @param restaurer true pour restaurer le meilleur modèle
+     */
+    public void setRestaurerMeilleur(boolean restaurer) {
+        this.restaurerMeilleur = restaurer;
+    }
+
+    /**
+     * Enregistre un point de reprise toutes les intervalle époques et à la
+     * fin de l'apprentissage : poids, état de l'optimiseur, générateur
+     * aléatoire, ordre des exemples, statistiques et critères d'arrêt.
+     * L'écriture se fait dans un thread à part pendant que l'apprentissage
+     * continue.
+     *
+     * Si le fichier existe quand entrainer est appelé, l'apprentissage
+     * reprend après la dernière époque enregistrée (il est terminé tout de
+     * suite si le point de reprise est celui de la fin). Le réseau doit avoir
+     * la même architecture, la même précision et le même optimiseur, et
+     * entrainer doit être appelé avec le même nombre d'époques (la
+     * décroissance du taux d'apprentissage en dépend) ; sinon entrainer
+     * échoue sans rien modifier.
+     *
+     * @param fichier    fichier du point de reprise (null = pas de reprise)
+     * @param intervalle nombre d'époques entre deux points de reprise
+     */
+    public void setPointsReprise(String fichier, int intervalle) {
+        if (intervalle < 1)
+            throw new IllegalArgumentException("intervalle de reprise invalide : " + intervalle);
+        this.fichierReprise = fichier != null ? Path.of(fichier) : null;
+        this.intervalleReprise = intervalle;
+    }
+
+    /**
+     * Choisit la précision des calculs du réseau. Les poids actuels sont
+     * conservés (arrondis en float si besoin) : à appeler avant entrainer.
+     * Pour une même graine (setSeed), les poids initiaux sont les mêmes quelle
+     * que soit la précision.
+     *
+     * @param precision DOUBLE (par défaut), FLOAT ou FLOAT_ACCUMULATION_DOUBLE
+     */
+    public void setPrecision(Precision precision) {
+        if (precision == this.precision)
+            return;
+        MLP reseau;
+        if (precision == Precision.DOUBLE) {
+            reseau = new MLP(mlp.fSizes, mlp.getLearningRate(), mlp.getTransferFunctions());
+        } else {
+            reseau = new MLPFloat(mlp.fSizes, mlp.getLearningRate(), mlp.getTransferFunctions(),
+                    precision == Precision.FLOAT_ACCUMULATION_DOUBLE);
+        }
+        reseau.setSoftmax(mlp.isSoftmax());
+        reseau.setOptimizer(mlp.getOptimizer());
+        reseau.copierParametres(mlp);
+        this.mlp = reseau;
+        this.precision = precision;
+    }
+
+    public Precision getPrecision() {
+        return precision;
+    }
+
+    /**
+     * Sortie softmax apprise avec l'entropie croisée : les sorties sont des
+     * probabilités et le Delta de sortie (target - sortie) ne s'annule plus
+     * quand une sortie sature, ce qui accélère la convergence
+     *
+     * @param softmax true pour une sortie softmax (false par défaut : fonction
+     *                de transfert et erreur quadratique)
+     */
+    public void setSoftmax(boolean softmax) {
+        mlp.setSoftmax(softmax);
+    }
+
+    public boolean isSoftmax() {
+        return mlp.isSoftmax();
+    }
+
+    /**
+     * Change la règle de mise à jour des poids (SGD par défaut). Le taux
+     * d'apprentissage et sa décroissance restent ceux de la classification.
+     *
+     * @param optimizer SGD, Momentum, Nesterov ou Adam (propre à ce réseau)
+     */
+    public void setOptimizer(Optimizer optimizer) {
+        mlp.setOptimizer(optimizer);
+    }
+
+    public Optimizer getOptimizer() {
+        return mlp.getOptimizer();
+    }
+
+    /**
+     * Fixe la graine de l'initialisation des poids et du mélange des données.
+     * Les poids sont réinitialisés : à appeler avant entrainer. Avec une même
+     * graine et un même nombre de threads, l'apprentissage est reproductible.
+     *
+     * @param seed graine du générateur aléatoire
+     */
+    public void setSeed(long seed) {
+        this.random = new GenerateurAleatoire(seed);
+        mlp.initWeights(random);
+    }
+
+    /**
+     * Prédiction par lots : les imagettes sont découpées en blocs propagés
+     * ensemble par produits matriciels, les blocs étant répartis entre les
+     * coeurs disponibles
+     */
+    @Override
+    public int[] predireLot(Imagette[] imgs) {
+        int[] predictions = new int[imgs.length];
+        CacheEntrees cache = cachePour(imgs);
+        int nbBlocs = (imgs.length + TAILLE_LOT_PREDICTION - 1) / TAILLE_LOT_PREDICTION;
+        IntStream.range(0, nbBlocs).parallel().forEach(bloc -> {
+            ContextePrediction contexte = contexte();
+            contexte.preparerLot();
+            int from = bloc * TAILLE_LOT_PREDICTION;
+            int count = Math.min(TAILLE_LOT_PREDICTION, imgs.length - from);
+            for (int b = 0; b < count; b++) {
+                entree(imgs, cache, from + b, contexte.inputs[b]);
+            }
+            double[] outputs = mlp.executeBatch(contexte.inputs, 0, count, contexte.lot);
+            for (int b = 0; b < count; b++) {
+                predictions[from + b] = outputToLabel(outputs, b * outputSize);
+            }
+        });
+        return predictions;
+    }
+
     // Getters
     public List<Double> getTrainErrors() {
         return trainErrors;
@@ -148,6 +1131,78 @@ public class MLPClassification extends AlgoClassification {
         return testAccuracies;
     }
 
+    /**
+     * @return précisions de validation par époque (NaN si non évaluée), vide
+     *         sans ensemble de validation
+     */
+    public List<Double> getValidationAccuracies() {
+        return validationAccuracies;
+    }
+
+    /**
+     * @return époque (à partir de 1) de meilleure précision suivie lors du
+     *         dernier apprentissage, 0 si aucune époque n'a été évaluée
+     */
+    public int getMeilleureEpoque() {
+        return meilleureEpoque;
+    }
+
+    public double getMeilleurePrecision() {
+        return meilleurePrecision;
+    }
+
+    /**
+     * @return première époque du dernier apprentissage ayant atteint la
+     *         précision cible, 0 si elle n'a pas été atteinte
+     */
+    public int getEpoquePrecisionCible() {
+        return epoquePrecisionCible;
+    }
+
+    /**
+     * @return temps pour atteindre la précision cible lors du dernier
+     *         apprentissage, en ms (-1 si elle n'a pas été atteinte)
+     */
+    public long getTempsPrecisionCibleMs() {
+        return tempsPrecisionCibleMs;
+    }
+
+    /**
+     * @return raison de l'arrêt anticipé du dernier apprentissage, null s'il
+     *         a fait toutes ses époques
+     */
+    public String getRaisonArret() {
+        return raisonArret;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public boolean isHogwild() {
+        return hogwild;
+    }
+
+    /**
+     * @return temps passé par le calcul à attendre un lot pas encore préparé
+     *         lors du dernier apprentissage avec prefetch, en ms
+     */
+    public long getAttentePrefetchCalculMs() {
+        return attentePrefetchCalculMs;
+    }
+
+    /**
+     * @return temps passé par les producteurs à attendre un tampon libre
+     *         lors du dernier apprentissage avec prefetch, en ms
+     */
+    public long getAttentePrefetchProducteursMs() {
+        return attentePrefetchProducteursMs;
+    }
+
     public long getTrainingTimeMs() {
         return trainingTimeMs;
     }
@@ -157,6 +1212,8 @@ public class MLPClassification extends AlgoClassification {
     }
 
     public double getFinalTestAccuracy() {
+        if (!Double.isNaN(precisionTestFinale))
+            return precisionTestFinale;
         return testAccuracies.isEmpty() ? 0 : testAccuracies.get(testAccuracies.size() - 1);
     }
 }
@@ -0,0 +1,353 @@
+package MLP;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * MLP en simple précision
+ *
+ * Poids, biais, valeurs et Delta sont stockés en float : chaque propagation
+ * parcourt deux fois moins de mémoire qu'avec MLP, pour une précision
+ * largement suffisante sur MNIST. L'API est celle de MLP : les entrées et
+ * les sorties restent des double, et les gradients d'un lot sont accumulés
+ * en double avant la mise à jour des poids.
+ *
+ * Avec accumulationDouble, les produits scalaires de la propagation avant
+ * sont eux aussi sommés en double, ce qui limite les erreurs d'arrondi sur
+ * les couches de grande taille.
+ */
+public class MLPFloat extends MLP {
+
+    /**
+     * Poids et biais, même disposition que MLP.fWeights et MLP.fBiases
+     * (qui ne sont pas alloués)
+     */
+    protected float[][] fWeightsF;
+    protected float[][] fBiasesF;
+
+    /**
+     * Sommer les produits scalaires en double
+     */
+    protected final boolean fAccumulationDouble;
+
+    /**
+     * @param layers             Nb neurones par couches
+     * @param learningRate       tx d'apprentissage
+     * @param fun                Function de transfert
+     * @param accumulationDouble sommer les produits scalaires en double
+     */
+    public MLPFloat(int[] layers, double learningRate, TransferFunction fun, boolean accumulationDouble) {
+        this(layers, learningRate, parCouche(fun, layers.length), accumulationDouble);
+    }
+
+    /**
+     * @param layers             Nb neurones par couches
+     * @param learningRate       tx d'apprentissage
+     * @param funs               Function de transfert de chaque couche après
+     *                           l'entrée
+     * @param accumulationDouble sommer les produits scalaires en double
+     */
+    public MLPFloat(int[] layers, double learningRate, TransferFunction[] funs, boolean accumulationDouble) {
+        this(layers, learningRate, funs, accumulationDouble, true);
+    }
+
+    /**
+     * @param initialiser tirer les poids initiaux (faux si les paramètres
+     *                    sont ensuite chargés, voir FormatModele)
+     */
+    MLPFloat(int[] layers, double learningRate, TransferFunction[] funs, boolean accumulationDouble,
+            boolean initialiser) {
+        super(layers, learningRate, funs, false);
+        fAccumulationDouble = accumulationDouble;
+
+        fWeightsF = new float[layers.length][];
+        fBiasesF = new float[layers.length][];
+        for (int k = 0; k < layers.length; k++) {
+            int prev = (k != 0) ? layers[k - 1] : 0;
+            fWeightsF[k] = new float[layers[k] * prev];
+            fBiasesF[k] = new float[layers[k]];
+        }
+        fWorkspace = createWorkspace();
+        if (initialiser)
+            initWeights(new Random());
+    }
+
+    /**
+     * Même tirage que MLP.initWeights : pour une même graine, les poids
+     * initiaux sont ceux du réseau en double arrondis en float
+     */
+    @Override
+    void initWeights(Random random) {
+        for (int k = 0; k < fSizes.length; k++) {
+            int prev = (k != 0) ? fSizes[k - 1] : 0;
+            double ecartType = (k != 0) ? fTransferFunctions[k].ecartTypeInitial(prev) : 0.0;
+            for (int i = 0; i < fSizes[k]; i++) {
+                fBiasesF[k][i] = (float) tirerBiais(random, ecartType);
+                for (int j = 0; j < prev; j++)
+                    fWeightsF[k][i * prev + j] = (float) tirerPoids(random, ecartType, prev);
+            }
+        }
+    }
+
+    @Override
+    void exporterParametres(double[][] weights, double[][] biases) {
+        for (int k = 1; k < fSizes.length; k++) {
+            for (int i = 0; i < fWeightsF[k].length; i++)
+                weights[k][i] = fWeightsF[k][i];
+            for (int i = 0; i < fBiasesF[k].length; i++)
+                biases[k][i] = fBiasesF[k][i];
+        }
+    }
+
+    @Override
+    void importerParametres(double[][] weights, double[][] biases) {
+        for (int k = 1; k < fSizes.length; k++) {
+            for (int i = 0; i < fWeightsF[k].length; i++)
+                fWeightsF[k][i] = (float) weights[k][i];
+            for (int i = 0; i < fBiasesF[k].length; i++)
+                fBiasesF[k][i] = (float) biases[k][i];
+        }
+    }
+
+    @Override
+    int tailleParametres() {
+        int taille = 0;
+        for (int k = 1; k < fSizes.length; k++)
+            taille += 4 * (fWeightsF[k].length + fBiasesF[k].length);
+        return taille;
+    }
+
+    @Override
+    void ecrireParametres(ByteBuffer buffer) {
+        for (int k = 1; k < fSizes.length; k++) {
+            FormatModele.ecrire(buffer, fWeightsF[k]);
+            FormatModele.ecrire(buffer, fBiasesF[k]);
+        }
+    }
+
+    @Override
+    void lireParametres(ByteBuffer buffer) {
+        for (int k = 1; k < fSizes.length; k++) {
+            FormatModele.lire(buffer, fWeightsF[k]);
+            FormatModele.lire(buffer, fBiasesF[k]);
+        }
+    }
+
+    @Override
+    public Precision getPrecision() {
+        return fAccumulationDouble ? Precision.FLOAT_ACCUMULATION_DOUBLE : Precision.FLOAT;
+    }
+
+    @Override
+    public MLPWorkspace createWorkspace() {
+        return new MLPWorkspace(fSizes, true);
+    }
+
+    @Override
+    BatchWorkspace createBatchWorkspace(int capacity) {
+        return new BatchWorkspace(fSizes, capacity, true);
+    }
+
+    @Override
+    public double[] execute(double[] input, MLPWorkspace ws) {
+        int i, j, k;
+        int last = fSizes.length - 1;
+
+        float[] in = ws.valuesF[0];
+        for (j = 0; j < fSizes[0]; j++)
+            in[j] = (float) input[j];
+
+        for (k = 1; k < fSizes.length; k++) {
+            float[] weights = fWeightsF[k];
+            float[] biases = fBiasesF[k];
+            float[] prev = ws.valuesF[k - 1];
+            float[] values = ws.valuesF[k];
+            int nPrev = fSizes[k - 1];
+
+            for (i = 0; i < fSizes[k]; i++) {
+                int row = i * nPrev;
+                double new_value;
+                if (fAccumulationDouble) {
+                    new_value = 0.0;
+                    for (j = 0; j < nPrev; j++)
+                        new_value += (double) weights[row + j] * prev[j];
+                } else {
+                    new_value = Noyaux.INSTANCE.produit(weights, row, prev, 0, nPrev);
+                }
+                values[i] = (float) (new_value - biases[i]);
+            }
+            if (k == last && fSoftmax)
+                softmax(values, 0, fSizes[k]);
+            else
+                fTransferFunctions[k].evaluate(values, values, fSizes[k]);
+        }
+
+        // sortie rendue en double
+        double[] output = ws.values[last];
+        float[] outValues = ws.valuesF[last];
+        for (i = 0; i < output.length; i++)
+            output[i] = outValues[i];
+        return output;
+    }
+
+    @Override
+    double backPropagate(double[] input, double[] output, MLPWorkspace ws) {
+        double new_output[] = execute(input, ws);
+        double error;
+        int i, k;
+        int last = fSizes.length - 1;
+
+        // Erreur de sortie
+        float[] outDeltas = ws.deltasF[last];
+        for (i = 0; i < fSizes[last]; i++)
+            outDeltas[i] = (float) (output[i] - new_output[i]);
+        if (!fSoftmax)
+            fTransferFunctions[last].applyDer(ws.valuesF[last], outDeltas, fSizes[last]);
+
+        fOptimizer.debutEtape(fLearningRate);
+        for (k = last - 1; k >= 0; k--) {
+            float[] weights = fWeightsF[k + 1];
+            float[] biases = fBiasesF[k + 1];
+            float[] nextDeltas = ws.deltasF[k + 1];
+            float[] values = ws.valuesF[k];
+            float[] deltas = ws.deltasF[k];
+            int n = fSizes[k];
+
+            // même parcours que MLP.backPropagate
+            if (k > 0)
+                Arrays.fill(deltas, 0.0f);
+            for (i = 0; i < fSizes[k + 1]; i++) {
+                int row = i * n;
+                float delta = nextDeltas[i];
+                if (k > 0)
+                    Noyaux.INSTANCE.axpy(delta, weights, row, deltas, 0, n);
+                fOptimizer.appliquer(2 * k, weights, row, values, 0, delta, n);
+            }
+            fOptimizer.appliquer(2 * k + 1, biases, 0, nextDeltas, 0, -1.0, fSizes[k + 1]);
+
+            if (k > 0)
+                fTransferFunctions[k].applyDer(values, deltas, n);
+        }
+
+        // Calcul de l'erreur
+        error = 0.0;
+        for (i = 0; i < output.length; i++) {
+            error += Math.abs(new_output[i] - output[i]);
+        }
+        error = error / output.length;
+        return error;
+    }
+
+    @Override
+    double[] executeBatch(double[][] inputs, int from, int count, BatchWorkspace ws) {
+        int last = fSizes.length - 1;
+        int b, i, k;
+
+        float[] in = ws.valuesF[0];
+        int n0 = fSizes[0];
+        for (b = 0; b < count; b++) {
+            double[] input = inputs[from + b];
+            int row = b * n0;
+            for (i = 0; i < n0; i++)
+                in[row + i] = (float) input[i];
+        }
+
+        for (k = 1; k <= last; k++) {
+            float[] values = ws.valuesF[k];
+            float[] biases = fBiasesF[k];
+            int n = fSizes[k];
+            Matrices.multiplierTransposeeB(ws.valuesF[k - 1], fWeightsF[k], values, count, n, fSizes[k - 1],
+                    fAccumulationDouble);
+            for (b = 0; b < count; b++) {
+                int row = b * n;
+                for (i = 0; i < n; i++)
+                    values[row + i] -= biases[i];
+            }
+            if (k == last && fSoftmax) {
+                for (b = 0; b < count; b++)
+                    softmax(values, b * n, n);
+            } else {
+                fTransferFunctions[k].evaluate(values, values, count * n);
+            }
+        }
+
+        // sorties rendues en double
+        double[] output = ws.values[last];
+        float[] outValues = ws.valuesF[last];
+        for (i = 0; i < count * fSizes[last]; i++)
+            output[i] = outValues[i];
+        return output;
+    }
+
+    @Override
+    double computeGradients(double[][] inputs, double[][] targets, int from, int to, BatchWorkspace ws) {
+        int count = to - from;
+        int last = fSizes.length - 1;
+        int b, i, k;
+
+        executeBatch(inputs, from, count, ws);
+
+        // Erreur de sortie
+        double error = 0.0;
+        float[] outValues = ws.valuesF[last];
+        float[] outDeltas = ws.deltasF[last];
+        int nOut = fSizes[last];
+        int correct = 0;
+        for (b = 0; b < count; b++) {
+            double[] target = targets[from + b];
+            int row = b * nOut;
+            double sampleError = 0.0;
+            int predicted = 0;
+            int expected = 0;
+            for (i = 0; i < nOut; i++) {
+                double diff = target[i] - outValues[row + i];
+                outDeltas[row + i] = (float) diff;
+                sampleError += Math.abs(diff);
+                if (outValues[row + i] > outValues[row + predicted])
+                    predicted = i;
+                if (target[i] > target[expected])
+                    expected = i;
+            }
+            error += sampleError / nOut;
+            if (predicted == expected)
+                correct++;
+        }
+        ws.correct = correct;
+        if (!fSoftmax)
+            fTransferFunctions[last].applyDer(outValues, outDeltas, count * nOut);
+
+        // Rétropropagation et gradients (accumulés en double)
+        for (k = last; k >= 1; k--) {
+            float[] deltas = ws.deltasF[k];
+            double[] biasGrads = ws.biasGrads[k];
+            int n = fSizes[k];
+            int nPrev = fSizes[k - 1];
+
+            Arrays.fill(ws.weightGrads[k], 0.0);
+            Matrices.accumulerTransposeeA(deltas, ws.valuesF[k - 1], ws.weightGrads[k], n, nPrev, count);
+            Arrays.fill(biasGrads, 0.0);
+            for (b = 0; b < count; b++)
+                for (i = 0; i < n; i++)
+                    biasGrads[i] += deltas[b * n + i];
+
+            if (k > 1) {
+                float[] prevValues = ws.valuesF[k - 1];
+                float[] prevDeltas = ws.deltasF[k - 1];
+                Matrices.multiplier(deltas, fWeightsF[k], prevDeltas, count, nPrev, n);
+                fTransferFunctions[k - 1].applyDer(prevValues, prevDeltas, count * nPrev);
+            }
+        }
+        return error;
+    }
+
+    @Override
+    void applyGradients(BatchWorkspace ws, int count) {
+        double echelle = 1.0 / count;
+        fOptimizer.debutEtape(fLearningRate);
+        for (int k = 1; k < fSizes.length; k++) {
+            fOptimizer.appliquer(2 * (k - 1), fWeightsF[k], 0, ws.weightGrads[k], 0, echelle, fWeightsF[k].length);
+            fOptimizer.appliquer(2 * (k - 1) + 1, fBiasesF[k], 0, ws.biasGrads[k], 0, -echelle, fBiasesF[k].length);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package MLP;
+
+/**
+ * Valeurs et Delta de chaque couche pour un exemple
+ *
+ * Le MLP ne stocke que ses paramètres (poids et biais) ; tout ce qui change
+ * pendant une propagation est écrit dans une zone de travail. Plusieurs
+ * threads peuvent donc exécuter le même MLP en même temps, chacun avec sa
+ * propre zone (obtenue par MLP.createWorkspace()). Une zone ne doit pas être
+ * partagée entre threads.
+ */
+public final class MLPWorkspace {
+    final double[][] values;
+    final double[][] deltas;
+
+    /**
+     * Valeurs et Delta en simple précision (MLPFloat), null sinon. Seule la
+     * couche de sortie de values est alors allouée, pour rendre la sortie en
+     * double.
+     */
+    final float[][] valuesF;
+    final float[][] deltasF;
+
+    MLPWorkspace(int[] sizes) {
+        this(sizes, false);
+    }
+
+    MLPWorkspace(int[] sizes, boolean simplePrecision) {
+        int last = sizes.length - 1;
+        values = new double[sizes.length][];
+        deltas = new double[sizes.length][];
+        valuesF = simplePrecision ? new float[sizes.length][] : null;
+        deltasF = simplePrecision ? new float[sizes.length][] : null;
+        for (int k = 0; k < sizes.length; k++) {
+            if (simplePrecision) {
+                valuesF[k] = new float[sizes[k]];
+                deltasF[k] = new float[sizes[k]];
+                if (k == last)
+                    values[k] = new double[sizes[k]];
+            } else {
+                values[k] = new double[sizes[k]];
+                deltas[k] = new double[sizes[k]];
+            }
+        }
+    }
+
+    /**
+     * @return la couche de sortie calculée par la dernière propagation
+     */
+    public double[] getOutput() {
+        return values[values.length - 1];
+    }
+}
@@ -0,0 +1,255 @@
+package MLP;
+
+import java.util.Arrays;
+
+/**
+ * Produits matriciels par blocs utilisés par l'apprentissage par lots du MLP
+ *
+ * Toutes les matrices sont stockées ligne par ligne dans un tableau à une
+ * dimension. Les boucles sont découpées en blocs de BLOC x BLOC pour que les
+ * lignes réutilisées restent dans le cache pendant le calcul d'un bloc.
+ * Les versions float servent à MLPFloat ; leurs gradients (C += A^T . B)
+ * sont accumulés en double.
+ */
+final class Matrices {
+
+    /**
+     * Taille d'un bloc (64 doubles = 512 octets par ligne de bloc)
+     */
+    static final int BLOC = 64;
+
+    private Matrices() {
+    }
+
+    /**
+     * C = A . B^T
+     *
+     * @param a matrice m x p
+     * @param b matrice n x p
+     * @param c matrice m x n (écrasée)
+     * @param m nombre de lignes de A
+     * @param n nombre de lignes de B
+     * @param p nombre de colonnes de A et de B
+     */
+    static void multiplierTransposeeB(double[] a, double[] b, double[] c, int m, int n, int p) {
+        Arrays.fill(c, 0, m * n, 0.0);
+        for (int p0 = 0; p0 < p; p0 += BLOC) {
+            int p1 = Math.min(p0 + BLOC, p);
+            for (int j0 = 0; j0 < n; j0 += BLOC) {
+                int j1 = Math.min(j0 + BLOC, n);
+                int i = 0;
+                // 4 lignes de A à la fois : chaque ligne de B lue sert 4 fois
+                for (; i + 4 <= m; i += 4) {
+                    int rowA = i * p;
+                    int rowC = i * n;
+                    for (int j = j0; j < j1; j++) {
+                        int rowB = j * p;
+                        double s0 = 0.0, s1 = 0.0, s2 = 0.0, s3 = 0.0;
+                        for (int l = p0; l < p1; l++) {
+                            double v = b[rowB + l];
+                            s0 += a[rowA + l] * v;
+                            s1 += a[rowA + p + l] * v;
+                            s2 += a[rowA + 2 * p + l] * v;
+                            s3 += a[rowA + 3 * p + l] * v;
+                        }
+                        c[rowC + j] += s0;
+                        c[rowC + n + j] += s1;
+                        c[rowC + 2 * n + j] += s2;
+                        c[rowC + 3 * n + j] += s3;
+                    }
+                }
+                for (; i < m; i++) {
+                    int rowA = i * p;
+                    int rowC = i * n;
+                    for (int j = j0; j < j1; j++) {
+                        int rowB = j * p;
+                        double sum = 0.0;
+                        for (int l = p0; l < p1; l++)
+                            sum += a[rowA + l] * b[rowB + l];
+                        c[rowC + j] += sum;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * C = A . B
+     *
+     * @param a matrice m x p
+     * @param b matrice p x n
+     * @param c matrice m x n (écrasée)
+     * @param m nombre de lignes de A
+     * @param n nombre de colonnes de B
+     * @param p nombre de colonnes de A (lignes de B)
+     */
+    static void multiplier(double[] a, double[] b, double[] c, int m, int n, int p) {
+        Arrays.fill(c, 0, m * n, 0.0);
+        for (int l0 = 0; l0 < p; l0 += BLOC) {
+            int l1 = Math.min(l0 + BLOC, p);
+            for (int j0 = 0; j0 < n; j0 += BLOC) {
+                int j1 = Math.min(j0 + BLOC, n);
+                for (int i = 0; i < m; i++) {
+                    int rowA = i * p;
+                    int rowC = i * n;
+                    for (int l = l0; l < l1; l++) {
+                        double coef = a[rowA + l];
+                        if (coef == 0.0)
+                            continue;
+                        int rowB = l * n;
+                        for (int j = j0; j < j1; j++)
+                            c[rowC + j] += coef * b[rowB + j];
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * C += A^T . B
+     *
+     * @param a matrice p x m
+     * @param b matrice p x n
+     * @param c matrice m x n (accumulée)
+     * @param m nombre de colonnes de A
+     * @param n nombre de colonnes de B
+     * @param p nombre de lignes de A et de B
+     */
+    static void accumulerTransposeeA(double[] a, double[] b, double[] c, int m, int n, int p) {
+        for (int i0 = 0; i0 < m; i0 += BLOC) {
+            int i1 = Math.min(i0 + BLOC, m);
+            for (int j0 = 0; j0 < n; j0 += BLOC) {
+                int j1 = Math.min(j0 + BLOC, n);
+                for (int l = 0; l < p; l++) {
+                    int rowA = l * m;
+                    int rowB = l * n;
+                    for (int i = i0; i < i1; i++) {
+                        double coef = a[rowA + i];
+                        if (coef == 0.0)
+                            continue;
+                        int rowC = i * n;
+                        for (int j = j0; j < j1; j++)
+                            c[rowC + j] += coef * b[rowB + j];
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * C = A . B^T en simple précision
+     *
+     * @param accumulationDouble accumuler les produits scalaires de chaque
+     *                           bloc en double plutôt qu'en float
+     * @see #multiplierTransposeeB(double[], double[], double[], int, int, int)
+     */
+    static void multiplierTransposeeB(float[] a, float[] b, float[] c, int m, int n, int p,
+            boolean accumulationDouble) {
+        Arrays.fill(c, 0, m * n, 0.0f);
+        for (int p0 = 0; p0 < p; p0 += BLOC) {
+            int p1 = Math.min(p0 + BLOC, p);
+            for (int j0 = 0; j0 < n; j0 += BLOC) {
+                int j1 = Math.min(j0 + BLOC, n);
+                int i = 0;
+                for (; i + 4 <= m; i += 4) {
+                    int rowA = i * p;
+                    int rowC = i * n;
+                    for (int j = j0; j < j1; j++) {
+                        int rowB = j * p;
+                        if (accumulationDouble) {
+                            double s0 = 0.0, s1 = 0.0, s2 = 0.0, s3 = 0.0;
+                            for (int l = p0; l < p1; l++) {
+                                double v = b[rowB + l];
+                                s0 += a[rowA + l] * v;
+                                s1 += a[rowA + p + l] * v;
+                                s2 += a[rowA + 2 * p + l] * v;
+                                s3 += a[rowA + 3 * p + l] * v;
+                            }
+                            c[rowC + j] += (float) s0;
+                            c[rowC + n + j] += (float) s1;
+                            c[rowC + 2 * n + j] += (float) s2;
+                            c[rowC + 3 * n + j] += (float) s3;
+                        } else {
+                            float s0 = 0.0f, s1 = 0.0f, s2 = 0.0f, s3 = 0.0f;
+                            for (int l = p0; l < p1; l++) {
+                                float v = b[rowB + l];
+                                s0 += a[rowA + l] * v;
+                                s1 += a[rowA + p + l] * v;
+                                s2 += a[rowA + 2 * p + l] * v;
+                                s3 += a[rowA + 3 * p + l] * v;
+                            }
+                            c[rowC + j] += s0;
+                            c[rowC + n + j] += s1;
+                            c[rowC + 2 * n + j] += s2;
+                            c[rowC + 3 * n + j] += s3;
+                        }
+                    }
+                }
+                for (; i < m; i++) {
+                    int rowA = i * p;
+                    int rowC = i * n;
+                    for (int j = j0; j < j1; j++) {
+                        int rowB = j * p;
+                        double sum = 0.0;
+                        for (int l = p0; l < p1; l++)
+                            sum += a[rowA + l] * b[rowB + l];
+                        c[rowC + j] += (float) sum;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * C = A . B en simple précision
+     *
+     * @see #multiplier(double[], double[], double[], int, int, int)
+     */
+    static void multiplier(float[] a, float[] b, float[] c, int m, int n, int p) {
+        Arrays.fill(c, 0, m * n, 0.0f);
+        for (int l0 = 0; l0 < p; l0 += BLOC) {
+            int l1 = Math.min(l0 + BLOC, p);
+            for (int j0 = 0; j0 < n; j0 += BLOC) {
+                int j1 = Math.min(j0 + BLOC, n);
+                for (int i = 0; i < m; i++) {
+                    int rowA = i * p;
+                    int rowC = i * n;
+                    for (int l = l0; l < l1; l++) {
+                        float coef = a[rowA + l];
+                        if (coef == 0.0f)
+                            continue;
+                        int rowB = l * n;
+                        for (int j = j0; j < j1; j++)
+                            c[rowC + j] += coef * b[rowB + j];
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * C += A^T . B, A et B en simple précision, C en double
+     *
+     * @see #accumulerTransposeeA(double[], double[], double[], int, int, int)
+     */
+    static void accumulerTransposeeA(float[] a, float[] b, double[] c, int m, int n, int p) {
+        for (int i0 = 0; i0 < m; i0 += BLOC) {
+            int i1 = Math.min(i0 + BLOC, m);
+            for (int j0 = 0; j0 < n; j0 += BLOC) {
+                int j1 = Math.min(j0 + BLOC, n);
+                for (int l = 0; l < p; l++) {
+                    int rowA = l * m;
+                    int rowB = l * n;
+                    for (int i = i0; i < i1; i++) {
+                        float coef = a[rowA + i];
+                        if (coef == 0.0f)
+                            continue;
+                        int rowC = i * n;
+                        for (int j = j0; j < j1; j++)
+                            c[rowC + j] += (double) coef * b[rowB + j];
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package MLP;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Descente de gradient avec inertie :
+ * v = mu * v + d, puis p += lr * v
+ */
+public class Momentum extends Optimizer {
+    protected final double mu;
+    protected double[][] vitesses;
+
+    /**
+     * inertie de 0.9
+     */
+    public Momentum() {
+        this(0.9);
+    }
+
+    /**
+     * @param mu inertie, dans [0, 1[
+     */
+    public Momentum(double mu) {
+        if (mu < 0.0 || mu >= 1.0)
+            throw new IllegalArgumentException("inertie invalide : " + mu);
+        this.mu = mu;
+    }
+
+    @Override
+    void initialiser(int[] tailles) {
+        vitesses = etatNul(tailles);
+    }
+
+    @Override
+    void ecrireEtat(DataOutputStream out) throws IOException {
+        ecrire(out, vitesses);
+    }
+
+    @Override
+    void lireEtat(DataInputStream in) throws IOException {
+        lire(in, vitesses);
+    }
+
+    @Override
+    void appliquer(int slot, double[] params, int off, double[] directions, int dOff, double echelle, int n) {
+        double[] v = vitesses[slot];
+        for (int i = 0; i < n; i++) {
+            v[off + i] = mu * v[off + i] + echelle * directions[dOff + i];
+            params[off + i] += pas * v[off + i];
+        }
+    }
+
+    @Override
+    void appliquer(int slot, float[] params, int off, float[] directions, int dOff, double echelle, int n) {
+        double[] v = vitesses[slot];
+        for (int i = 0; i < n; i++) {
+            v[off + i] = mu * v[off + i] + echelle * directions[dOff + i];
+            params[off + i] += (float) (pas * v[off + i]);
+        }
+    }
+
+    @Override
+    void appliquer(int slot, float[] params, int off, double[] directions, int dOff, double echelle, int n) {
+        double[] v = vitesses[slot];
+        for (int i = 0; i < n; i++) {
+            v[off + i] = mu * v[off + i] + echelle * directions[dOff + i];
+            params[off + i] += (float) (pas * v[off + i]);
+        }
+    }
+
+    public double getMu() {
+        return mu;
+    }
+}
@@ -0,0 +1,52 @@
+package MLP;
+
+/**
+ * Gradient accéléré de Nesterov (forme usuelle sans évaluation décalée) :
+ * v = mu * v + d, puis p += lr * (d + mu * v)
+ */
+public class Nesterov extends Momentum {
+
+    /**
+     * inertie de 0.9
+     */
+    public Nesterov() {
+        super();
+    }
+
+    /**
+     * @param mu inertie, dans [0, 1[
+     */
+    public Nesterov(double mu) {
+        super(mu);
+    }
+
+    @Override
+    void appliquer(int slot, double[] params, int off, double[] directions, int dOff, double echelle, int n) {
+        double[] v = vitesses[slot];
+        for (int i = 0; i < n; i++) {
+            double d = echelle * directions[dOff + i];
+            v[off + i] = mu * v[off + i] + d;
+            params[off + i] += pas * (d + mu * v[off + i]);
+        }
+    }
+
+    @Override
+    void appliquer(int slot, float[] params, int off, float[] directions, int dOff, double echelle, int n) {
+        double[] v = vitesses[slot];
+        for (int i = 0; i < n; i++) {
+            double d = echelle * directions[dOff + i];
+            v[off + i] = mu * v[off + i] + d;
+            params[off + i] += (float) (pas * (d + mu * v[off + i]));
+        }
+    }
+
+    @Override
+    void appliquer(int slot, float[] params, int off, double[] directions, int dOff, double echelle, int n) {
+        double[] v = vitesses[slot];
+        for (int i = 0; i < n; i++) {
+            double d = echelle * directions[dOff + i];
+            v[off + i] = mu * v[off + i] + d;
+            params[off + i] += (float) (pas * (d + mu * v[off + i]));
+        }
+    }
+}
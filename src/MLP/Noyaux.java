@@ -0,0 +1,120 @@
+package MLP;
+
+/**
+ * Boucles de calcul élémentaires du MLP et du k-NN
+ *
+ * Cette classe contient les versions scalaires. Si le module incubateur
+ * jdk.incubator.vector est disponible, INSTANCE est une NoyauxVector qui
+ * fait les mêmes calculs avec des instructions SIMD (API Vector de Java).
+ * NoyauxVector est dans une racine de sources à part (src-vector), qui
+ * n'est compilée qu'avec ce module. Depuis src :
+ *
+ * javac -encoding UTF-8 MLP/*.java *.java
+ *
+ * compile la bibliothèque et les programmes avec les versions scalaires,
+ * et pour les versions SIMD :
+ *
+ * javac -encoding UTF-8 --add-modules jdk.incubator.vector MLP/*.java *.java ../src-vector/MLP/*.java
+ * java --add-modules jdk.incubator.vector ...
+ *
+ * Si NoyauxVector n'est pas compilée ou que le module est absent à
+ * l'exécution, les versions scalaires sont utilisées.
+ * -Dmlp.noyaux=scalaire force les versions scalaires. Les noyaux SIMD
+ * sommant dans un autre ordre, les résultats peuvent différer des versions
+ * scalaires dans les derniers bits.
+ */
+class Noyaux {
+
+    /**
+     * Noyaux utilisés par le MLP et le k-NN
+     */
+    static final Noyaux INSTANCE = charger();
+
+    private static Noyaux charger() {
+        if (!"scalaire".equals(System.getProperty("mlp.noyaux"))) {
+            try {
+                return (Noyaux) Class.forName("MLP.NoyauxVector").getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // module jdk.incubator.vector absent : versions scalaires
+            }
+        }
+        return new Noyaux();
+    }
+
+    /**
+     * @return nom des noyaux utilisés
+     */
+    String nom() {
+        return "scalaire";
+    }
+
+    /**
+     * @return somme des a[offA + i] * b[offB + i] pour i dans [0, n[
+     */
+    double produit(double[] a, int offA, double[] b, int offB, int n) {
+        double sum = 0.0;
+        for (int i = 0; i < n; i++)
+            sum += a[offA + i] * b[offB + i];
+        return sum;
+    }
+
+    /**
+     * @return somme des a[offA + i] * b[offB + i] pour i dans [0, n[
+     */
+    float produit(float[] a, int offA, float[] b, int offB, int n) {
+        float sum = 0.0f;
+        for (int i = 0; i < n; i++)
+            sum += a[offA + i] * b[offB + i];
+        return sum;
+    }
+
+    /**
+     * y[offY + i] += alpha * x[offX + i] pour i dans [0, n[
+     */
+    void axpy(double alpha, double[] x, int offX, double[] y, int offY, int n) {
+        for (int i = 0; i < n; i++)
+            y[offY + i] += alpha * x[offX + i];
+    }
+
+    /**
+     * y[offY + i] += alpha * x[offX + i] pour i dans [0, n[
+     */
+    void axpy(float alpha, float[] x, int offX, float[] y, int offY, int n) {
+        for (int i = 0; i < n; i++)
+            y[offY + i] += alpha * x[offX + i];
+    }
+
+    /**
+     * @return somme des carrés des différences entre les octets (non signés)
+     *         a[offA + i] et b[offB + i] pour i dans [0, n[
+     */
+    long distanceCarree(byte[] a, int offA, byte[] b, int offB, int n) {
+        long sum = 0;
+        for (int i = 0; i < n; i++) {
+            int diff = (a[offA + i] & 0xFF) - (b[offB + i] & 0xFF);
+            sum += diff * diff;
+        }
+        return sum;
+    }
+
+    /**
+     * Produits scalaires d'une ligne d'octets (non signés) avec 4 lignes
+     * d'entiers : out[outOff + r] = somme des a[offA + r * n + i] * b[offB + i]
+     * pour i dans [0, n[ et r dans [0, 4[. Les entiers de a sont des pixels
+     * (0 à 255) : les sommes sont exactes.
+     */
+    void produitsOctets4(int[] a, int offA, byte[] b, int offB, int n, long[] out, int outOff) {
+        long s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        for (int i = 0; i < n; i++) {
+            int v = b[offB + i] & 0xFF;
+            s0 += a[offA + i] * v;
+            s1 += a[offA + n + i] * v;
+            s2 += a[offA + 2 * n + i] * v;
+            s3 += a[offA + 3 * n + i] * v;
+        }
+        out[outOff] = s0;
+        out[outOff + 1] = s1;
+        out[outOff + 2] = s2;
+        out[outOff + 3] = s3;
+    }
+}
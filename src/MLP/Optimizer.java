@@ -0,0 +1,106 @@
+package MLP;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Règle de mise à jour des poids et des biais du MLP
+ *
+ * Les paramètres du réseau sont vus comme une suite de tableaux (slots) :
+ * poids puis biais de chaque couche. Un optimiseur garde son état (vitesses,
+ * moments...) dans des tableaux de même taille que chaque slot, alloués par
+ * initialiser. Pour chaque paramètre, il reçoit la direction de descente
+ * (opposé du gradient de l'erreur, soit Delta * valeur pour un poids et
+ * -Delta pour un biais) et en déduit la modification à appliquer.
+ *
+ * Un optimiseur appartient à un seul MLP (voir MLP.setOptimizer). En mode
+ * Hogwild, son état est mis à jour sans verrou, comme les poids.
+ */
+public abstract class Optimizer {
+
+    /**
+     * Taux d'apprentissage de l'étape en cours (fixé par debutEtape)
+     */
+    protected double pas;
+
+    /**
+     * Alloue l'état (nul) de l'optimiseur
+     *
+     * @param tailles taille de chaque slot de paramètres
+     */
+    void initialiser(int[] tailles) {
+    }
+
+    /**
+     * Début d'une mise à jour de tous les paramètres (un exemple ou un lot)
+     *
+     * @param learningRate taux d'apprentissage courant du réseau
+     */
+    void debutEtape(double learningRate) {
+        pas = learningRate;
+    }
+
+    /**
+     * Met à jour params[off + i] pour i dans [0, n[, la direction de descente
+     * étant echelle * directions[dOff + i]. L'état utilisé est celui des
+     * positions off + i du slot.
+     */
+    abstract void appliquer(int slot, double[] params, int off, double[] directions, int dOff, double echelle,
+            int n);
+
+    /**
+     * Version simple précision (MLPFloat, exemple par exemple)
+     */
+    abstract void appliquer(int slot, float[] params, int off, float[] directions, int dOff, double echelle,
+            int n);
+
+    /**
+     * Version simple précision avec des directions en double (MLPFloat, par
+     * lots : les gradients sont accumulés en double)
+     */
+    abstract void appliquer(int slot, float[] params, int off, double[] directions, int dOff, double echelle,
+            int n);
+
+    /**
+     * Enregistre l'état de l'optimiseur dans un point de reprise (rien pour
+     * un optimiseur sans état)
+     */
+    void ecrireEtat(DataOutputStream out) throws IOException {
+    }
+
+    /**
+     * Relit l'état écrit par ecrireEtat, l'optimiseur ayant été initialisé
+     * pour les mêmes slots
+     */
+    void lireEtat(DataInputStream in) throws IOException {
+    }
+
+    /**
+     * Écrit les valeurs de chaque slot d'un état
+     */
+    static void ecrire(DataOutputStream out, double[][] etat) throws IOException {
+        for (double[] slot : etat)
+            for (double v : slot)
+                out.writeDouble(v);
+    }
+
+    /**
+     * Relit dans etat (déjà alloué) les valeurs écrites par ecrire
+     */
+    static void lire(DataInputStream in, double[][] etat) throws IOException {
+        for (double[] slot : etat)
+            for (int i = 0; i < slot.length; i++)
+                slot[i] = in.readDouble();
+    }
+
+    /**
+     * @return un tableau d'état nul par slot
+     */
+    static double[][] etatNul(int[] tailles) {
+        double[][] etat = new double[tailles.length][];
+        for (int s = 0; s < tailles.length; s++)
+            etat[s] = new double[tailles[s]];
+        return etat;
+    }
+}
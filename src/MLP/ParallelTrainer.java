@@ -0,0 +1,110 @@
+package MLP;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Apprentissage par lots parallèle (parallélisme de données)
+ *
+ * Chaque lot est découpé en nbShards parts contiguës. Chaque part calcule ses
+ * gradients dans sa propre zone de travail, puis les gradients sont sommés
+ * deux à deux selon un arbre fixe (la part de gauche reçoit celle de droite)
+ * avant une unique mise à jour des poids. Le découpage et l'ordre des
+ * additions ne dépendent que du nombre de parts : pour une même graine et un
+ * même nombre de threads, les résultats sont identiques d'une exécution à
+ * l'autre.
+ */
+class ParallelTrainer implements AutoCloseable {
+    private final ForkJoinPool pool;
+    private final int nbShards;
+    private final BatchWorkspace[] workspaces;
+
+    ParallelTrainer(MLP mlp, int threads, int batchSize) {
+        this.pool = new ForkJoinPool(threads);
+        this.nbShards = threads;
+        this.workspaces = new BatchWorkspace[threads];
+        int shardCapacity = (batchSize + threads - 1) / threads;
+        for (int s = 0; s < threads; s++)
+            workspaces[s] = mlp.createBatchWorkspace(shardCapacity);
+    }
+
+    /**
+     * Apprentissage sur les count premiers exemples du lot
+     *
+     * @return erreur moyenne sur le lot
+     */
+    double trainBatch(MLP mlp, double[][] inputs, double[][] targets, int count) {
+        double error = pool.invoke(new ShardTask(mlp, inputs, targets, count, 0, nbShards));
+        mlp.applyGradients(workspaces[0], count);
+        return error / count;
+    }
+
+    /**
+     * @return nombre d'exemples bien classés dans le dernier lot
+     */
+    int getCorrect() {
+        return workspaces[0].correct;
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    /**
+     * Traite les parts [first, last[ et laisse la somme de leurs gradients
+     * dans la zone de travail de la part first
+     */
+    @SuppressWarnings("serial") // tâche jamais sérialisée
+    private class ShardTask extends RecursiveTask<Double> {
+        private final MLP mlp;
+        private final double[][] inputs;
+        private final double[][] targets;
+        private final int count;
+        private final int first;
+        private final int last;
+
+        ShardTask(MLP mlp, double[][] inputs, double[][] targets, int count, int first, int last) {
+            this.mlp = mlp;
+            this.inputs = inputs;
+            this.targets = targets;
+            this.count = count;
+            this.first = first;
+            this.last = last;
+        }
+
+        @Override
+        protected Double compute() {
+            if (last - first == 1) {
+                int from = (int) ((long) count * first / nbShards);
+                int to = (int) ((long) count * last / nbShards);
+                return mlp.computeGradients(inputs, targets, from, to, workspaces[first]);
+            }
+
+            int mid = (first + last) >>> 1;
+            ShardTask left = new ShardTask(mlp, inputs, targets, count, first, mid);
+            ShardTask right = new ShardTask(mlp, inputs, targets, count, mid, last);
+            left.fork();
+            double errorRight = right.compute();
+            double errorLeft = left.join();
+
+            add(workspaces[first], workspaces[mid]);
+            return errorLeft + errorRight;
+        }
+
+        private void add(BatchWorkspace into, BatchWorkspace from) {
+            for (int k = 1; k < into.weightGrads.length; k++) {
+                double[] a = into.weightGrads[k];
+                double[] b = from.weightGrads[k];
+                for (int i = 0; i < a.length; i++)
+                    a[i] += b[i];
+
+                a = into.biasGrads[k];
+                b = from.biasGrads[k];
+                for (int i = 0; i < a.length; i++)
+                    a[i] += b[i];
+            }
+            into.correct += from.correct;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package MLP;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Préparation des lots d'apprentissage en arrière-plan
+ *
+ * Des threads producteurs décodent et normalisent les lots à venir dans un
+ * anneau de tampons réutilisés pendant que le thread de calcul apprend sur
+ * les lots déjà prêts. Avec P producteurs, le producteur p prépare les lots
+ * p, p + P, p + 2P... dans ses propres tampons, et le calcul les reprend
+ * dans l'ordre : l'ordre des lots ne dépend pas du nombre de producteurs.
+ *
+ * Deux compteurs mesurent les attentes : celle des producteurs (tous leurs
+ * tampons sont pleins, le calcul est le facteur limitant) et celle du calcul
+ * (aucun lot prêt, la préparation des données est le facteur limitant).
+ */
+class PipelineLots implements AutoCloseable {
+
+    /**
+     * Remplit un lot ; doit pouvoir être appelé par plusieurs producteurs en
+     * même temps pour des lots différents (sauf avec un seul producteur)
+     */
+    interface Producteur {
+        /**
+         * @param numLot numéro du lot dans l'époque
+         * @return nombre d'exemples du lot (0 après le dernier lot)
+         */
+        int remplir(int numLot, double[][] inputs, int[] labels) throws Exception;
+    }
+
+    /**
+     * Tampon réutilisable contenant un lot
+     */
+    static final class Lot {
+        final double[][] inputs;
+        final int[] labels;
+        int count;
+        Exception erreur;
+        private final int producteur;
+
+        private Lot(int tailleEntree, int tailleLot, int producteur) {
+            this.inputs = new double[tailleLot][tailleEntree];
+            this.labels = new int[tailleLot];
+            this.producteur = producteur;
+        }
+    }
+
+    private final ExecutorService threads;
+    private final ArrayBlockingQueue<Lot>[] libres;
+    private final ArrayBlockingQueue<Lot>[] prets;
+    private int prochainLot;
+    private boolean finEpoque = true;
+
+    private final AtomicLong attenteProducteurs = new AtomicLong();
+    private final AtomicLong attenteCalcul = new AtomicLong();
+
+    /**
+     * @param tailleEntree taille des vecteurs d'entrée
+     * @param tailleLot    nombre d'exemples par lot
+     * @param nbTampons    nombre de lots préparés à l'avance (au moins un par
+     *                     producteur)
+     * @param producteurs  nombre de threads producteurs
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    PipelineLots(int tailleEntree, int tailleLot, int nbTampons, int producteurs) {
+        int parProducteur = Math.max(1, nbTampons / producteurs);
+        threads = Executors.newFixedThreadPool(producteurs, r -> {
+            Thread t = new Thread(r, "prefetch-lots");
+            t.setDaemon(true);
+            return t;
+        });
+        libres = new ArrayBlockingQueue[producteurs];
+        prets = new ArrayBlockingQueue[producteurs];
+        for (int p = 0; p < producteurs; p++) {
+            libres[p] = new ArrayBlockingQueue<>(parProducteur);
+            prets[p] = new ArrayBlockingQueue<>(parProducteur);
+            for (int t = 0; t < parProducteur; t++) {
+                libres[p].add(new Lot(tailleEntree, tailleLot, p));
+            }
+        }
+    }
+
+    /**
+     * Lance la préparation des lots d'une époque. Tous les lots de l'époque
+     * précédente doivent avoir été consommés.
+     */
+    void demarrerEpoque(Producteur producteur) {
+        if (!finEpoque)
+            throw new IllegalStateException("epoque precedente non terminee");
+        finEpoque = false;
+        prochainLot = 0;
+        int nbProducteurs = libres.length;
+        for (int p = 0; p < nbProducteurs; p++) {
+            int premier = p;
+            threads.execute(() -> produire(producteur, premier, nbProducteurs));
+        }
+    }
+
+    private void produire(Producteur producteur, int premier, int pas) {
+        try {
+            for (int numLot = premier;; numLot += pas) {
+                long debut = System.nanoTime();
+                Lot lot = libres[premier].take();
+                attenteProducteurs.addAndGet(System.nanoTime() - debut);
+
+                try {
+                    lot.count = producteur.remplir(numLot, lot.inputs, lot.labels);
+                    lot.erreur = null;
+                } catch (Exception e) {
+                    lot.count = 0;
+                    lot.erreur = e;
+                }
+                prets[premier].put(lot);
+                if (lot.count == 0)
+                    return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Lot suivant de l'époque, à rendre avec rendre() une fois utilisé
+     *
+     * @return le lot, ou null à la fin de l'époque
+     * @throws Exception erreur survenue pendant la préparation du lot
+     */
+    Lot prendre() throws Exception {
+        if (finEpoque)
+            return null;
+        ArrayBlockingQueue<Lot> file = prets[prochainLot % prets.length];
+        long debut = System.nanoTime();
+        Lot lot = file.take();
+        attenteCalcul.addAndGet(System.nanoTime() - debut);
+        prochainLot++;
+
+        if (lot.count == 0) {
+            // fin de l'époque : attendre la fin des autres producteurs
+            finEpoque = true;
+            Exception erreur = lot.erreur;
+            rendre(lot);
+            for (int p = 0; p < prets.length; p++) {
+                if (p != lot.producteur) {
+                    Lot dernier = prets[p].take();
+                    while (dernier.count != 0) {
+                        rendre(dernier);
+                        dernier = prets[p].take();
+                    }
+                    if (erreur == null)
+                        erreur = dernier.erreur;
+                    rendre(dernier);
+                }
+            }
+            if (erreur != null)
+                throw erreur;
+            return null;
+        }
+        return lot;
+    }
+
+    /**
+     * Rend un tampon pris par prendre() pour qu'il soit rempli à nouveau
+     */
+    void rendre(Lot lot) {
+        libres[lot.producteur].add(lot);
+    }
+
+    /**
+     * @return temps total d'attente des producteurs (calcul trop lent), en ns
+     */
+    long getAttenteProducteursNanos() {
+        return attenteProducteurs.get();
+    }
+
+    /**
+     * @return temps total d'attente du calcul (données pas prêtes), en ns
+     */
+    long getAttenteCalculNanos() {
+        return attenteCalcul.get();
+    }
+
+    @Override
+    public void close() {
+        threads.shutdownNow();
+    }
+}
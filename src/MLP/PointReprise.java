@@ -0,0 +1,293 @@
+package MLP;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Point de reprise d'un apprentissage de MLPClassification
+ *
+ * Contient tout ce qu'il faut pour continuer l'apprentissage à l'époque
+ * suivante comme s'il n'avait pas été interrompu : le réseau (au format de
+ * FormatModele), l'état de l'optimiseur, celui du générateur aléatoire, l'ordre
+ * courant des exemples, le sous-ensemble de test des évaluations, les
+ * statistiques accumulées et l'état des critères d'arrêt.
+ *
+ * Le point de reprise est encodé en mémoire par le thread d'apprentissage
+ * (une copie, rapide), puis écrit par un autre thread dans un fichier
+ * temporaire renommé ensuite : le fichier est toujours complet, même si la
+ * JVM s'arrête pendant l'écriture.
+ */
+final class PointReprise {
+
+    /**
+     * "MLPR" en ASCII
+     */
+    static final int MAGIC = 0x4D4C5052;
+    static final int VERSION = 3;
+
+    int epoques;
+    int epoquesFaites;
+    GenerateurAleatoire random;
+    int[] indices;
+    int[] sousEnsembleTest;
+    List<Double> trainErrors;
+    List<Double> trainAccuracies;
+    List<Double> testAccuracies;
+    List<Double> validationAccuracies;
+    long tempsMs;
+    int meilleureEpoque;
+    double meilleurePrecision;
+    int epoquePrecisionCible;
+    long tempsPrecisionCibleMs;
+    String raisonArret;
+    double[][][] meilleursParametres;
+
+    /**
+     * Encode le point de reprise et le réseau mlp (paramètres, taux
+     * d'apprentissage et état de son optimiseur)
+     */
+    byte[] encoder(MLP mlp) throws IOException {
+        ByteArrayOutputStream octets = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(octets)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+
+            ByteBuffer modele = FormatModele.encoder(mlp);
+            out.writeInt(modele.remaining());
+            out.write(modele.array(), 0, modele.remaining());
+            out.writeUTF(mlp.getOptimizer().getClass().getName());
+            // état de l'optimiseur précédé de sa taille : la lecture peut le
+            // mettre de côté et ne l'appliquer qu'une fois tout le fichier lu
+            ByteArrayOutputStream etatOptimiseur = new ByteArrayOutputStream();
+            try (DataOutputStream etat = new DataOutputStream(etatOptimiseur)) {
+                mlp.getOptimizer().ecrireEtat(etat);
+            }
+            out.writeInt(etatOptimiseur.size());
+            etatOptimiseur.writeTo(out);
+
+            out.writeInt(epoques);
+            out.writeInt(epoquesFaites);
+            // générateur en primitives : pas de sérialisation Java à la relecture
+            out.writeLong(random.getEtat());
+            out.writeBoolean(random.aGaussienneSuivante());
+            out.writeDouble(random.getGaussienneSuivante());
+            ecrire(out, indices);
+            ecrire(out, sousEnsembleTest);
+            ecrire(out, trainErrors);
+            ecrire(out, trainAccuracies);
+            ecrire(out, testAccuracies);
+            ecrire(out, validationAccuracies);
+
+            out.writeLong(tempsMs);
+            out.writeInt(meilleureEpoque);
+            out.writeDouble(meilleurePrecision);
+            out.writeInt(epoquePrecisionCible);
+            out.writeLong(tempsPrecisionCibleMs);
+            out.writeBoolean(raisonArret != null);
+            if (raisonArret != null)
+                out.writeUTF(raisonArret);
+            out.writeBoolean(meilleursParametres != null);
+            if (meilleursParametres != null) {
+                Optimizer.ecrire(out, meilleursParametres[0]);
+                Optimizer.ecrire(out, meilleursParametres[1]);
+            }
+        }
+        return octets.toByteArray();
+    }
+
+    /**
+     * Écrit un point de reprise encodé : fichier temporaire forcé sur le
+     * disque, puis renommé en fichier
+     */
+    static void ecrire(byte[] donnees, Path fichier) throws IOException {
+        Path temporaire = fichier.resolveSibling(fichier.getFileName() + ".tmp");
+        try (FileChannel canal = FileChannel.open(temporaire, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(donnees);
+            while (buffer.hasRemaining())
+                canal.write(buffer);
+            canal.force(true);
+        }
+        Files.move(temporaire, fichier, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Relit un point de reprise et remet dans mlp ses paramètres et l'état
+     * de son optimiseur. Rien n'est modifié dans mlp si le fichier est
+     * illisible ou incompatible.
+     *
+     * @param mlp     réseau de même architecture, de même précision et avec
+     *                un optimiseur de même classe que celui enregistré
+     * @param epoques nombre total d'époques de l'apprentissage repris, qui
+     *                doit être celui du point de reprise (la décroissance du
+     *                taux d'apprentissage en dépend)
+     * @param nbExemples nombre d'imagettes d'entraînement, dont l'ordre
+     *                   enregistré doit être une permutation
+     * @param tailleTest nombre d'imagettes de test (0 sans test), dans
+     *                   lesquelles le sous-ensemble enregistré doit être pris
+     * @throws IOException fichier illisible, corrompu ou incompatible avec
+     *                     mlp, epoques ou les données
+     */
+    static PointReprise lire(Path fichier, MLP mlp, int epoques, int nbExemples, int tailleTest)
+            throws IOException {
+        byte[] donnees = Files.readAllBytes(fichier);
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(donnees))) {
+            if (in.readInt() != MAGIC)
+                throw new IOException("pas un point de reprise : " + fichier);
+            int version = in.readInt();
+            if (version != VERSION)
+                throw new IOException("version de point de reprise non supportee : " + version);
+
+            int tailleModele = lireTaille(in, 1);
+            ByteBuffer modele = ByteBuffer.wrap(donnees, 8 + 4, tailleModele).slice();
+            MLP enregistre = FormatModele.decoder(modele, fichier.toString());
+            if (enregistre.getPrecision() != mlp.getPrecision()
+                    || !Arrays.equals(enregistre.fSizes, mlp.fSizes))
+                throw new IOException("point de reprise d'un autre reseau : " + fichier);
+            in.skipNBytes(tailleModele);
+            String optimiseur = in.readUTF();
+            if (!optimiseur.equals(mlp.getOptimizer().getClass().getName()))
+                throw new IOException("point de reprise d'un autre optimiseur : " + optimiseur);
+            byte[] etatOptimiseur = new byte[lireTaille(in, 1)];
+            in.readFully(etatOptimiseur);
+            if (etatOptimiseur.length != tailleEtat(mlp.getOptimizer()))
+                throw new IOException("etat de l'optimiseur incoherent : " + fichier);
+
+            PointReprise point = new PointReprise();
+            point.epoques = in.readInt();
+            if (point.epoques != epoques)
+                throw new IOException("point de reprise d'un apprentissage de " + point.epoques
+                        + " epoques, " + epoques + " demandees : " + fichier);
+            point.epoquesFaites = in.readInt();
+            point.random = new GenerateurAleatoire();
+            point.random.restaurer(in.readLong(), in.readBoolean(), in.readDouble());
+            point.indices = lireEntiers(in);
+            if (!permutation(point.indices, nbExemples))
+                throw new IOException("ordre des exemples incompatible avec les " + nbExemples
+                        + " imagettes d'entrainement : " + fichier);
+            point.sousEnsembleTest = lireEntiers(in);
+            if (point.sousEnsembleTest != null)
+                for (int i : point.sousEnsembleTest)
+                    if (i < 0 || i >= tailleTest)
+                        throw new IOException("sous-ensemble de test incompatible avec les " + tailleTest
+                                + " imagettes de test : " + fichier);
+            point.trainErrors = lireListe(in);
+            point.trainAccuracies = lireListe(in);
+            point.testAccuracies = lireListe(in);
+            point.validationAccuracies = lireListe(in);
+
+            point.tempsMs = in.readLong();
+            point.meilleureEpoque = in.readInt();
+            point.meilleurePrecision = in.readDouble();
+            point.epoquePrecisionCible = in.readInt();
+            point.tempsPrecisionCibleMs = in.readLong();
+            point.raisonArret = in.readBoolean() ? in.readUTF() : null;
+            if (in.readBoolean()) {
+                point.meilleursParametres = mlp.allouerParametres();
+                Optimizer.lire(in, point.meilleursParametres[0]);
+                Optimizer.lire(in, point.meilleursParametres[1]);
+            }
+            if (in.read() >= 0)
+                throw new IOException("donnees en trop dans le point de reprise : " + fichier);
+
+            // fichier lu en entier : l'état n'est appliqué qu'à présent
+            try (DataInputStream etat = new DataInputStream(new ByteArrayInputStream(etatOptimiseur))) {
+                mlp.getOptimizer().lireEtat(etat);
+            }
+            mlp.copierParametres(enregistre);
+            mlp.setLearningRate(enregistre.getLearningRate());
+            return point;
+        } catch (java.io.EOFException | IndexOutOfBoundsException e) {
+            throw new IOException("point de reprise tronque : " + fichier, e);
+        }
+    }
+
+    /**
+     * @return taille en octets de l'état de optimiseur écrit par ecrireEtat
+     */
+    private static int tailleEtat(Optimizer optimiseur) throws IOException {
+        ByteArrayOutputStream octets = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(octets)) {
+            optimiseur.ecrireEtat(out);
+        }
+        return octets.size();
+    }
+
+    private static int lireTaille(DataInputStream in, int tailleElement) throws IOException {
+        return verifierTaille(in, in.readInt(), tailleElement);
+    }
+
+    /**
+     * Vérifie que taille éléments de tailleElement octets tiennent dans la
+     * suite du fichier : une taille corrompue est rejetée avant toute
+     * allocation
+     *
+     * @return taille
+     */
+    private static int verifierTaille(DataInputStream in, int taille, int tailleElement) throws IOException {
+        if (taille < 0 || (long) taille * tailleElement > in.available())
+            throw new IOException("taille invalide dans le point de reprise : " + taille);
+        return taille;
+    }
+
+    /**
+     * @return true si valeurs contient une fois chacun des entiers 0...n-1
+     */
+    private static boolean permutation(int[] valeurs, int n) {
+        if (valeurs == null || valeurs.length != n)
+            return false;
+        boolean[] vus = new boolean[n];
+        for (int v : valeurs) {
+            if (v < 0 || v >= n || vus[v])
+                return false;
+            vus[v] = true;
+        }
+        return true;
+    }
+
+    /**
+     * Tableau d'entiers précédé de sa taille (-1 pour null)
+     */
+    private static void ecrire(DataOutputStream out, int[] valeurs) throws IOException {
+        out.writeInt(valeurs != null ? valeurs.length : -1);
+        if (valeurs != null)
+            for (int v : valeurs)
+                out.writeInt(v);
+    }
+
+    private static int[] lireEntiers(DataInputStream in) throws IOException {
+        int taille = in.readInt();
+        if (taille == -1)
+            return null;
+        int[] valeurs = new int[verifierTaille(in, taille, 4)];
+        for (int i = 0; i < taille; i++)
+            valeurs[i] = in.readInt();
+        return valeurs;
+    }
+
+    private static void ecrire(DataOutputStream out, List<Double> valeurs) throws IOException {
+        out.writeInt(valeurs.size());
+        for (double v : valeurs)
+            out.writeDouble(v);
+    }
+
+    private static List<Double> lireListe(DataInputStream in) throws IOException {
+        int taille = lireTaille(in, 8);
+        List<Double> valeurs = new ArrayList<>(taille);
+        for (int i = 0; i < taille; i++)
+            valeurs.add(in.readDouble());
+        return valeurs;
+    }
+}
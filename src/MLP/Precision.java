@@ -0,0 +1,21 @@
+package MLP;
+
+/**
+ * Précision des calculs du MLP (voir MLPClassification.setPrecision)
+ */
+public enum Precision {
+    /**
+     * paramètres et calculs en double (MLP)
+     */
+    DOUBLE,
+
+    /**
+     * paramètres, valeurs et Delta en float (MLPFloat)
+     */
+    FLOAT,
+
+    /**
+     * comme FLOAT, mais les produits scalaires sont sommés en double
+     */
+    FLOAT_ACCUMULATION_DOUBLE
+}
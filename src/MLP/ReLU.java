@@ -0,0 +1,63 @@
+package MLP;
+
+/**
+ * Fonction de transfert ReLU (unité linéaire rectifiée)
+ *
+ * Fonction : f(x) = max(0, x)
+ * Dérivée : f'(f) = 1 si f > 0, 0 sinon
+ *
+ * Note : La dérivée reçoit f(x) en paramètre, pas x (f(x) > 0 équivaut à
+ * x > 0). Les poids des couches ReLU sont initialisés selon He :
+ * gaussiens d'écart type sqrt(2 / entrées), biais nuls.
+ */
+public class ReLU implements TransferFunction {
+
+    /**
+     * @param x valeur d'entrée
+     * @return max(0, x)
+     */
+    @Override
+    public double evaluate(double x) {
+        return x > 0.0 ? x : 0.0;
+    }
+
+    /**
+     * @param f résultat de f(x), PAS x lui-même
+     * @return 1 si f > 0, 0 sinon
+     */
+    @Override
+    public double evaluateDer(double f) {
+        return f > 0.0 ? 1.0 : 0.0;
+    }
+
+    @Override
+    public void evaluate(double[] in, double[] out, int n) {
+        for (int i = 0; i < n; i++)
+            out[i] = in[i] > 0.0 ? in[i] : 0.0;
+    }
+
+    @Override
+    public void applyDer(double[] f, double[] deltas, int n) {
+        for (int i = 0; i < n; i++)
+            if (f[i] <= 0.0)
+                deltas[i] = 0.0;
+    }
+
+    @Override
+    public void evaluate(float[] in, float[] out, int n) {
+        for (int i = 0; i < n; i++)
+            out[i] = in[i] > 0.0f ? in[i] : 0.0f;
+    }
+
+    @Override
+    public void applyDer(float[] f, float[] deltas, int n) {
+        for (int i = 0; i < n; i++)
+            if (f[i] <= 0.0f)
+                deltas[i] = 0.0f;
+    }
+
+    @Override
+    public double ecartTypeInitial(int prev) {
+        return Math.sqrt(2.0 / prev);
+    }
+}
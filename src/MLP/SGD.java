@@ -0,0 +1,24 @@
+package MLP;
+
+/**
+ * Descente de gradient simple : p += lr * d
+ */
+public class SGD extends Optimizer {
+
+    @Override
+    void appliquer(int slot, double[] params, int off, double[] directions, int dOff, double echelle, int n) {
+        Noyaux.INSTANCE.axpy(pas * echelle, directions, dOff, params, off, n);
+    }
+
+    @Override
+    void appliquer(int slot, float[] params, int off, float[] directions, int dOff, double echelle, int n) {
+        Noyaux.INSTANCE.axpy((float) (pas * echelle), directions, dOff, params, off, n);
+    }
+
+    @Override
+    void appliquer(int slot, float[] params, int off, double[] directions, int dOff, double echelle, int n) {
+        double alpha = pas * echelle;
+        for (int i = 0; i < n; i++)
+            params[off + i] += (float) (alpha * directions[dOff + i]);
+    }
+}
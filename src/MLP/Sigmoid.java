@@ -31,4 +31,28 @@ public class Sigmoid implements TransferFunction {
     public double evaluateDer(double sigma) {
         return sigma * (1.0 - sigma);
     }
+
+    @Override
+    public void evaluate(double[] in, double[] out, int n) {
+        for (int i = 0; i < n; i++)
+            out[i] = 1.0 / (1.0 + Math.exp(-in[i]));
+    }
+
+    @Override
+    public void applyDer(double[] sigma, double[] deltas, int n) {
+        for (int i = 0; i < n; i++)
+            deltas[i] *= sigma[i] * (1.0 - sigma[i]);
+    }
+
+    @Override
+    public void evaluate(float[] in, float[] out, int n) {
+        for (int i = 0; i < n; i++)
+            out[i] = (float) (1.0 / (1.0 + Math.exp(-in[i])));
+    }
+
+    @Override
+    public void applyDer(float[] sigma, float[] deltas, int n) {
+        for (int i = 0; i < n; i++)
+            deltas[i] *= sigma[i] * (1.0f - sigma[i]);
+    }
 }
@@ -0,0 +1,36 @@
+package MLP;
+
+/**
+ * Sigmoïde approchée par une table (sans Math.exp)
+ *
+ * σ est tabulée sur [-16, 16] avec un pas de 1/64 et interpolée
+ * linéairement. Erreur absolue maximale : 3.0e-6 (h² / 8 * max|σ''| avec
+ * max|σ''| = 0.0962, et 1 - σ(16) = 1.1e-7 hors de la table), voir
+ * TestFonctions. La dérivée est celle de Sigmoid, calculée à partir de la
+ * sortie.
+ */
+public class SigmoidRapide extends Sigmoid {
+
+    /**
+     * Erreur absolue maximale de evaluate par rapport à Sigmoid
+     */
+    public static final double ERREUR_MAX = 3.0e-6;
+
+    private static final Tabulation TABLE =
+            new Tabulation(x -> 1.0 / (1.0 + Math.exp(-x)), -16.0, 16.0, 64);
+
+    @Override
+    public double evaluate(double x) {
+        return TABLE.evaluer(x);
+    }
+
+    @Override
+    public void evaluate(double[] in, double[] out, int n) {
+        TABLE.evaluer(in, out, n);
+    }
+
+    @Override
+    public void evaluate(float[] in, float[] out, int n) {
+        TABLE.evaluer(in, out, n);
+    }
+}
@@ -0,0 +1,42 @@
+package MLP;
+
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Source d'exemples d'apprentissage fournis par lots
+ *
+ * Permet à MLPClassification.entrainer de consommer des données qui ne sont
+ * pas entièrement en mémoire (voir FluxIDX).
+ */
+public interface SourceLots {
+
+    /**
+     * @return nombre d'exemples d'une époque
+     */
+    public int taille();
+
+    /**
+     * @return taille des vecteurs d'entrée fournis
+     */
+    public int tailleEntree();
+
+    /**
+     * Recommence au début des données pour une nouvelle époque
+     *
+     * @param random générateur pour mélanger les exemples (null = pas de mélange)
+     * @throws IOException problème de lecture
+     */
+    public void nouvelleEpoque(Random random) throws IOException;
+
+    /**
+     * Remplit le prochain lot de l'époque
+     *
+     * @param inputs entrées normalisées à remplir (un lot d'au plus
+     *               inputs.length exemples)
+     * @param labels étiquettes correspondantes à remplir
+     * @return nombre d'exemples du lot (0 à la fin de l'époque)
+     * @throws IOException problème de lecture
+     */
+    public int lotSuivant(double[][] inputs, int[] labels) throws IOException;
+}
@@ -2,28 +2,104 @@ package MLP;
 
 /**
  * Classe utilitaire pour calculer les statistiques de classification
+ *
+ * Les prédictions sont faites en une seule passe sur les données de test
+ * (AlgoClassification.predireLot, parallèle) ; précision, matrice de
+ * confusion et rappel par classe sont ensuite tirés de ces prédictions.
  */
 public class Statistiques {
     private AlgoClassification algo;
     private Imagette[] donneesTest;
+    private int[] predictions;
+
+    /**
+     * Résultats de l'évaluation, calculés au premier accès
+     */
+    private int[][] matriceConfusion;
+    private int correct;
 
     public Statistiques(AlgoClassification algo, Imagette[] donneesTest) {
         this.algo = algo;
         this.donneesTest = donneesTest;
     }
 
+    /**
+     * Statistiques de prédictions déjà calculées (par exemple par
+     * kNN.predireLot pour plusieurs valeurs de k)
+     *
+     * @param predictions étiquette prédite de chaque imagette de donneesTest
+     */
+    public Statistiques(int[] predictions, Imagette[] donneesTest) {
+        if (predictions.length != donneesTest.length)
+            throw new IllegalArgumentException("nombre de predictions incorrect : " + predictions.length);
+        this.predictions = predictions;
+        this.donneesTest = donneesTest;
+    }
+
+    /**
+     * Prédit toutes les données de test et remplit la matrice de confusion
+     * (ne fait rien si c'est déjà fait)
+     */
+    private void evaluer() {
+        if (matriceConfusion != null)
+            return;
+
+        if (predictions == null)
+            predictions = algo.predireLot(donneesTest);
+
+        int nbClasses = 0;
+        for (int i = 0; i < donneesTest.length; i++) {
+            nbClasses = Math.max(nbClasses, Math.max(donneesTest[i].getLabel(), predictions[i]) + 1);
+        }
+
+        int[][] matrice = new int[nbClasses][nbClasses];
+        int bons = 0;
+        for (int i = 0; i < donneesTest.length; i++) {
+            int reel = donneesTest[i].getLabel();
+            matrice[reel][predictions[i]]++;
+            if (reel == predictions[i])
+                bons++;
+        }
+        correct = bons;
+        matriceConfusion = matrice;
+    }
+
     /**
      * Calcule la précision de l'algorithme sur les données de test
-     * 
+     *
      * @return la précision entre 0.0 et 1.0
      */
     public double calculerPrecision() {
-        int correct = 0;
-        for (Imagette img : donneesTest) {
-            if (algo.predire(img) == img.getLabel()) {
-                correct++;
-            }
-        }
+        evaluer();
         return (double) correct / donneesTest.length;
     }
+
+    /**
+     * Matrice de confusion : case [reel][predit] = nombre d'imagettes
+     * d'étiquette reel classées predit
+     *
+     * @return la matrice de confusion (nbClasses x nbClasses)
+     */
+    public int[][] getMatriceConfusion() {
+        evaluer();
+        return matriceConfusion;
+    }
+
+    /**
+     * Rappel de chaque classe : part des imagettes de la classe qui sont
+     * correctement classées (0 si la classe est absente des données)
+     *
+     * @return le rappel de chaque classe entre 0.0 et 1.0
+     */
+    public double[] getRappelParClasse() {
+        evaluer();
+        double[] rappel = new double[matriceConfusion.length];
+        for (int c = 0; c < matriceConfusion.length; c++) {
+            int total = 0;
+            for (int p = 0; p < matriceConfusion[c].length; p++)
+                total += matriceConfusion[c][p];
+            rappel[c] = total == 0 ? 0.0 : (double) matriceConfusion[c][c] / total;
+        }
+        return rappel;
+    }
 }
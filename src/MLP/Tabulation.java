@@ -0,0 +1,58 @@
+package MLP;
+
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Fonction tabulée sur [min, max] avec interpolation linéaire
+ *
+ * Les valeurs sont précalculées avec un pas h ; entre deux points, la
+ * fonction est interpolée linéairement, ce qui donne une erreur au plus
+ * h² / 8 * max|f''| sur l'intervalle. Hors de l'intervalle, on renvoie la
+ * valeur de la borne la plus proche (à utiliser pour des fonctions
+ * presque constantes au-delà des bornes).
+ */
+final class Tabulation {
+    private final double min;
+    private final double pointsParUnite;
+    private final double[] valeurs;
+    private final double[] pentes;
+    private final int dernier;
+
+    /**
+     * @param f              fonction à tabuler
+     * @param min            borne inférieure
+     * @param max            borne supérieure
+     * @param pointsParUnite nombre de points par unité (1 / h)
+     */
+    Tabulation(DoubleUnaryOperator f, double min, double max, int pointsParUnite) {
+        this.min = min;
+        this.pointsParUnite = pointsParUnite;
+        this.dernier = (int) Math.round((max - min) * pointsParUnite);
+        this.valeurs = new double[dernier + 1];
+        this.pentes = new double[dernier + 1];
+        for (int i = 0; i <= dernier; i++)
+            valeurs[i] = f.applyAsDouble(min + (double) i / pointsParUnite);
+        for (int i = 0; i < dernier; i++)
+            pentes[i] = valeurs[i + 1] - valeurs[i];
+    }
+
+    double evaluer(double x) {
+        double t = (x - min) * pointsParUnite;
+        if (t <= 0.0)
+            return valeurs[0];
+        if (t >= dernier)
+            return valeurs[dernier];
+        int i = (int) t;
+        return valeurs[i] + (t - i) * pentes[i];
+    }
+
+    void evaluer(double[] in, double[] out, int n) {
+        for (int k = 0; k < n; k++)
+            out[k] = evaluer(in[k]);
+    }
+
+    void evaluer(float[] in, float[] out, int n) {
+        for (int k = 0; k < n; k++)
+            out[k] = (float) evaluer(in[k]);
+    }
+}
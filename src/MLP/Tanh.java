@@ -31,4 +31,28 @@ public class Tanh implements TransferFunction {
     public double evaluateDer(double sigma) {
         return 1.0 - (sigma * sigma);
     }
+
+    @Override
+    public void evaluate(double[] in, double[] out, int n) {
+        for (int i = 0; i < n; i++)
+            out[i] = Math.tanh(in[i]);
+    }
+
+    @Override
+    public void applyDer(double[] sigma, double[] deltas, int n) {
+        for (int i = 0; i < n; i++)
+            deltas[i] *= 1.0 - (sigma[i] * sigma[i]);
+    }
+
+    @Override
+    public void evaluate(float[] in, float[] out, int n) {
+        for (int i = 0; i < n; i++)
+            out[i] = (float) Math.tanh(in[i]);
+    }
+
+    @Override
+    public void applyDer(float[] sigma, float[] deltas, int n) {
+        for (int i = 0; i < n; i++)
+            deltas[i] *= 1.0f - (sigma[i] * sigma[i]);
+    }
 }
@@ -0,0 +1,35 @@
+package MLP;
+
+/**
+ * Tangente hyperbolique approchée par une table (sans Math.tanh)
+ *
+ * tanh est tabulée sur [-10, 10] avec un pas de 1/128 et interpolée
+ * linéairement. Erreur absolue maximale : 6.0e-6 (h² / 8 * max|tanh''| avec
+ * max|tanh''| = 0.770, et 1 - tanh(10) = 4.1e-9 hors de la table), voir
+ * TestFonctions. La dérivée est celle de Tanh, calculée à partir de la
+ * sortie.
+ */
+public class TanhRapide extends Tanh {
+
+    /**
+     * Erreur absolue maximale de evaluate par rapport à Tanh
+     */
+    public static final double ERREUR_MAX = 6.0e-6;
+
+    private static final Tabulation TABLE = new Tabulation(Math::tanh, -10.0, 10.0, 128);
+
+    @Override
+    public double evaluate(double x) {
+        return TABLE.evaluer(x);
+    }
+
+    @Override
+    public void evaluate(double[] in, double[] out, int n) {
+        TABLE.evaluer(in, out, n);
+    }
+
+    @Override
+    public void evaluate(float[] in, float[] out, int n) {
+        TABLE.evaluer(in, out, n);
+    }
+}
@@ -26,5 +26,24 @@ public class TestFonctions {
             double tPrime = tanh.evaluateDer(t);
             System.out.printf("%.1f\t\t%.5f\t\t%.5f%n", x, t, tPrime);
         }
+
+        System.out.println("\n=== TEST APPROXIMATIONS ===");
+        System.out.println("fonction\terreur max\tborne");
+        System.out.printf("SigmoidRapide\t%.2e\t%.2e%n",
+                erreurMax(sigmoid, new SigmoidRapide()), SigmoidRapide.ERREUR_MAX);
+        System.out.printf("TanhRapide\t%.2e\t%.2e%n",
+                erreurMax(tanh, new TanhRapide()), TanhRapide.ERREUR_MAX);
+    }
+
+    /**
+     * Plus grand écart entre deux fonctions sur [-40, 40] (pas de 1e-4)
+     */
+    private static double erreurMax(TransferFunction reference, TransferFunction approx) {
+        double max = 0.0;
+        for (int i = -400000; i <= 400000; i++) {
+            double x = i * 1e-4;
+            max = Math.max(max, Math.abs(reference.evaluate(x) - approx.evaluate(x)));
+        }
+        return max;
     }
 }
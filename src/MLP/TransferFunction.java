@@ -0,0 +1,77 @@
+package MLP;
+
+/**
+ * Fonction de transfert d'une couche du MLP (voir Sigmoid, Tanh, ReLU...)
+ */
+public interface TransferFunction {
+    /**
+     * Function de transfert
+     * 
+     * @param value entrée
+     * @return sortie de la fonction sur l'entrée
+     */
+    public double evaluate(double value);
+
+    /**
+     * Dérivée de la fonction de tranfert
+     * 
+     * @param value entrée
+     * @return sortie de la fonction dérivée sur l'entrée
+     */
+    public double evaluateDer(double value);
+
+    /**
+     * Fonction de transfert appliquée à un tableau : out[i] = f(in[i]) pour
+     * i dans [0, n[ (out peut être in). Les fonctions la redéfinissent pour
+     * que la boucle soit dans leur propre classe, sans appel virtuel par
+     * neurone.
+     *
+     * @param in  entrées
+     * @param out sorties
+     * @param n   nombre de valeurs
+     */
+    public default void evaluate(double[] in, double[] out, int n) {
+        for (int i = 0; i < n; i++)
+            out[i] = evaluate(in[i]);
+    }
+
+    /**
+     * Multiplie des Delta par la dérivée : deltas[i] *= f'(values[i]) pour i
+     * dans [0, n[
+     *
+     * @param values sorties de la fonction (comme pour evaluateDer)
+     * @param deltas Delta à multiplier
+     * @param n      nombre de valeurs
+     */
+    public default void applyDer(double[] values, double[] deltas, int n) {
+        for (int i = 0; i < n; i++)
+            deltas[i] *= evaluateDer(values[i]);
+    }
+
+    /**
+     * Version simple précision de evaluate(double[], double[], int)
+     */
+    public default void evaluate(float[] in, float[] out, int n) {
+        for (int i = 0; i < n; i++)
+            out[i] = (float) evaluate(in[i]);
+    }
+
+    /**
+     * Version simple précision de applyDer(double[], double[], int)
+     */
+    public default void applyDer(float[] values, float[] deltas, int n) {
+        for (int i = 0; i < n; i++)
+            deltas[i] *= (float) evaluateDer(values[i]);
+    }
+
+    /**
+     * Écart type des poids initiaux (gaussiens, biais nuls) d'une couche
+     * utilisant cette fonction, ou 0 pour l'initialisation d'origine (poids
+     * uniformes sur [0, 1/prev[, biais uniformes sur [0, 1[)
+     *
+     * @param prev nombre d'entrées de la couche
+     */
+    public default double ecartTypeInitial(int prev) {
+        return 0.0;
+    }
+}
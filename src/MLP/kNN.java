@@ -1,70 +1,751 @@
 package MLP;
 
-import java.util.*;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.IntStream;
 
 /**
  * Algorithme k-plus-proches voisins (k-NN)
+ *
+ * Les voisins sont comparés par distance euclidienne au carré (même ordre
+ * que la distance, sans racine carrée), puis à distances égales par indice
+ * dans l'entraînement : les k voisins d'une requête sont les mêmes quel que
+ * soit le mode de recherche ci-dessous. Avec l'abandon précoce (par défaut),
+ * la distance à un candidat est sommée par blocs de pixels et abandonnée dès
+ * qu'elle atteint celle du k-ième voisin courant : ce candidat ne peut plus
+ * entrer parmi les voisins. Les pixels sont parcourus par variance
+ * décroissante sur l'ensemble d'entraînement (les bords, presque toujours
+ * noirs, en dernier) pour que l'abandon arrive le plus tôt possible. Les
+ * voisins retenus, et donc les prédictions, sont les mêmes qu'avec le calcul
+ * complet.
+ *
+ * La recherche ne crée aucun objet : les voisins sont gardés dans un tas
+ * de capacité k en tableaux primitifs et les votes comptés dans un tableau
+ * par étiquette, réutilisés par chaque thread qui appelle predire.
+ *
+ * predireLot calcule les distances d'un lot de requêtes par blocs de
+ * requêtes et tuiles d'entraînement qui tiennent dans le cache (tampons
+ * réutilisés par thread), sous la forme
+ * ||a||² + ||b||² - 2 a.b (normes précalculées, produits scalaires entiers
+ * donc exacts). Avec plusieurs valeurs de k, les distances ne sont
+ * calculées qu'une fois : chaque requête garde ses kmax plus proches
+ * voisins, et les k premiers servent pour chaque k.
+ *
+ * Avec setThreads(n > 1), une requête de predire est elle-même répartie :
+ * l'entraînement est découpé en n parts contiguës, chacune cherche ses k
+ * plus proches voisins sur un ForkJoinPool, puis les voisins des parts sont
+ * fusionnés.
+ *
+ * Avec un index (constructeur à trois paramètres), predire cherche les
+ * voisins dans un arbre de points de vue (IndexVP) construit une fois pour
+ * toutes, qui écarte des parties de l'entraînement par l'inégalité
+ * triangulaire. Les voisins trouvés sont exactement ceux du parcours de
+ * tout l'entraînement, égalités de distance comprises ; l'index remplace le
+ * parcours réparti de setThreads, et predireLot garde le calcul par tuiles.
+ * L'index n'est pas un accélérateur sur MNIST : en dimension 784,
+ * l'inégalité triangulaire écarte peu d'imagettes et predire y est 25 à
+ * 40 % plus lent qu'avec le parcours complet (voir TestIndexKNN). Il garde
+ * de plus sa propre copie des pixels (IndexVP.pixels), une troisième après
+ * les imagettes et pixelsOrdonnes.
  */
 public class kNN extends AlgoClassification {
     private int k;
 
+    /**
+     * Choix de l'étiquette quand plusieurs étiquettes ont le même nombre de
+     * votes parmi les k voisins
+     */
+    public enum Departage {
+        /**
+         * la plus petite étiquette (comportement historique)
+         */
+        PLUS_PETITE_ETIQUETTE,
+
+        /**
+         * l'étiquette du voisin le plus proche parmi les ex aequo
+         */
+        PLUS_PROCHE_VOISIN,
+
+        /**
+         * l'étiquette dont la somme des distances de ses voisins est la plus
+         * petite
+         */
+        DISTANCE_CUMULEE
+    }
+
+    private Departage departage = Departage.PLUS_PETITE_ETIQUETTE;
+    private final int nbEtiquettes;
+
+    /**
+     * Nombre de pixels sommés entre deux comparaisons au seuil d'abandon
+     */
+    private static final int BLOC_ABANDON = 64;
+
+    private boolean abandonPrecoce = true;
+
+    /**
+     * Recherche répartie de predire (pool null : sur le thread appelant)
+     */
+    private int threads = 1;
+    private ForkJoinPool pool;
+
+    /**
+     * Pixels de l'entraînement, imagette après imagette, dans l'ordre de
+     * ordrePixels
+     */
+    private final int taillePixels;
+    private final int[] ordrePixels;
+    private final byte[] pixelsOrdonnes;
+
+    /**
+     * Normes au carré des imagettes d'entraînement
+     */
+    private final long[] normes;
+
+    /**
+     * Calcul par lot : blocs de requêtes (multiple de 4, voir
+     * Noyaux.produitsOctets4) et tuiles d'imagettes d'entraînement (256 x 784
+     * octets, environ 200 Ko : la tuile reste dans le cache pendant que les
+     * groupes de 4 requêtes du bloc la parcourent)
+     */
+    private static final int TUILE_REQUETES = 32;
+    private static final int TUILE_ENTRAINEMENT = 256;
+
+    /**
+     * Index des plus proches voisins (null : parcours de tout l'entraînement)
+     */
+    private final IndexVP index;
+
     public kNN(Imagette[] donneesEntrainement, int k) {
+        this(donneesEntrainement, k, false);
+    }
+
+    /**
+     * @param indexer true pour construire l'index des plus proches voisins
+     *                utilisé par predire
+     */
+    public kNN(Imagette[] donneesEntrainement, int k, boolean indexer) {
         super(donneesEntrainement);
         this.k = k;
+        this.taillePixels = donneesEntrainement.length > 0
+                ? donneesEntrainement[0].getLignes() * donneesEntrainement[0].getColonnes()
+                : 0;
+        this.ordrePixels = ordreParVariance(donneesEntrainement, taillePixels);
+        this.pixelsOrdonnes = new byte[donneesEntrainement.length * taillePixels];
+        int maxEtiquette = 0;
+        for (int t = 0; t < donneesEntrainement.length; t++) {
+            ordonner(donneesEntrainement[t], pixelsOrdonnes, t * taillePixels);
+            maxEtiquette = Math.max(maxEtiquette, donneesEntrainement[t].getLabel());
+        }
+        this.nbEtiquettes = maxEtiquette + 1;
+        this.normes = new long[donneesEntrainement.length];
+        for (int t = 0; t < donneesEntrainement.length; t++) {
+            int offset = t * taillePixels;
+            for (int p = 0; p < taillePixels; p++) {
+                int v = pixelsOrdonnes[offset + p] & 0xFF;
+                normes[t] += v * v;
+            }
+        }
+        this.index = indexer ? new IndexVP(pixelsOrdonnes, taillePixels, donneesEntrainement.length) : null;
+    }
+
+    /**
+     * Tas max des k plus proches voisins, la racine étant le plus éloigné.
+     * Les voisins sont comparés par la clé (distance au carré, indice dans
+     * l'entraînement), toutes différentes : à distances égales, le voisin de
+     * plus petit indice est gardé. Les voisins gardés ne dépendent donc pas
+     * de l'ordre des candidats, et sont les mêmes pour predire (sur un ou
+     * plusieurs threads, avec ou sans index) et predireLot.
+     */
+    static final class Voisins {
+        /**
+         * Clés des voisins (voir cle)
+         */
+        final long[] cles;
+        int taille;
+
+        Voisins(int capacite) {
+            cles = new long[capacite];
+        }
+
+        /**
+         * Clé d'un voisin : distance au carré (moins de 2^31, soit des
+         * imagettes de moins de 33000 pixels sur un octet) puis indice
+         */
+        static long cle(long distance, int indice) {
+            return (distance << 32) | indice;
+        }
+
+        static long distance(long cle) {
+            return cle >>> 32;
+        }
+
+        static int indice(long cle) {
+            return (int) cle;
+        }
+
+        void vider() {
+            taille = 0;
+        }
+
+        boolean plein() {
+            return taille == cles.length;
+        }
+
+        /**
+         * @return distance au carré du plus éloigné des voisins gardés
+         */
+        long pire() {
+            return distance(cles[0]);
+        }
+
+        /**
+         * @return distance au carré à partir de laquelle le candidat indice
+         *         ne peut plus entrer parmi les voisins
+         */
+        long seuil(int indice) {
+            if (!plein())
+                return Long.MAX_VALUE;
+            // à égalité de distance, seul un indice plus petit l'emporte
+            return distance(cles[0]) + (indice < indice(cles[0]) ? 1 : 0);
+        }
+
+        /**
+         * Propose un candidat : ajouté si le tas n'est pas plein, sinon
+         * remplace le plus éloigné si sa clé est plus petite
+         */
+        void proposer(long distance, int indice) {
+            long cle = cle(distance, indice);
+            if (taille < cles.length) {
+                int pos = taille++;
+                while (pos > 0) {
+                    int parent = (pos - 1) >>> 1;
+                    if (cle <= cles[parent])
+                        break;
+                    cles[pos] = cles[parent];
+                    pos = parent;
+                }
+                cles[pos] = cle;
+            } else if (cle < cles[0]) {
+                int pos = 0;
+                int moitie = taille >>> 1;
+                while (pos < moitie) {
+                    int enfant = 2 * pos + 1;
+                    int droite = enfant + 1;
+                    if (droite < taille && cles[droite] > cles[enfant])
+                        enfant = droite;
+                    if (cle >= cles[enfant])
+                        break;
+                    cles[pos] = cles[enfant];
+                    pos = enfant;
+                }
+                cles[pos] = cle;
+            }
+        }
+
+        /**
+         * Range les voisins par clé croissante ; le tas n'est plus
+         * utilisable ensuite
+         */
+        void trier() {
+            Arrays.sort(cles, 0, taille);
+        }
+    }
+
+    /**
+     * Tampons d'une recherche, propres à chaque thread qui appelle predire
+     *
+     * Classe statique : la valeur du ThreadLocal ne doit pas référencer ce
+     * classifieur, sans quoi il resterait en mémoire (pixels, normes, index)
+     * tant que le thread vit.
+     */
+    private static final class Recherche {
+        /**
+         * Voisins de la requête, de capacité k (réallouée si setK change k)
+         */
+        Voisins voisins;
+        final byte[] requete;
+        final int[] votes;
+        final long[] departages;
+
+        Recherche(int k, int taillePixels, int nbEtiquettes) {
+            voisins = new Voisins(k);
+            requete = new byte[taillePixels];
+            votes = new int[nbEtiquettes];
+            departages = new long[nbEtiquettes];
+        }
+
+        /**
+         * Voisins de chaque part de la recherche répartie
+         */
+        Voisins[] parts;
+        int[] positions;
+    }
+
+    private final ThreadLocal<Recherche> recherches = ThreadLocal.withInitial(this::nouvelleRecherche);
+
+    private Recherche nouvelleRecherche() {
+        return new Recherche(k, taillePixels, nbEtiquettes);
     }
 
-    private double calculerDistance(Imagette img, Imagette trainImg) {
-        double sum = 0.0;
-        for (int i = 0; i < img.getLignes(); i++) {
-            for (int j = 0; j < img.getColonnes(); j++) {
-                int diff = img.getValeur(i, j) - trainImg.getValeur(i, j);
-                sum += diff * diff;
+    /**
+     * @return les positions des pixels triées par variance décroissante sur
+     *         les imagettes
+     */
+    private static int[] ordreParVariance(Imagette[] imagettes, int taillePixels) {
+        double[] somme = new double[taillePixels];
+        double[] sommeCarres = new double[taillePixels];
+        for (Imagette img : imagettes) {
+            byte[] donnees = img.getDonnees();
+            int offset = img.getOffset();
+            for (int p = 0; p < taillePixels; p++) {
+                int v = donnees[offset + p] & 0xFF;
+                somme[p] += v;
+                sommeCarres[p] += v * v;
             }
         }
-        return Math.sqrt(sum);
+        double[] variance = new double[taillePixels];
+        for (int p = 0; p < taillePixels; p++) {
+            double moyenne = somme[p] / Math.max(1, imagettes.length);
+            variance[p] = sommeCarres[p] / Math.max(1, imagettes.length) - moyenne * moyenne;
+        }
+        Integer[] ordre = new Integer[taillePixels];
+        for (int p = 0; p < taillePixels; p++)
+            ordre[p] = p;
+        Arrays.sort(ordre, (a, b) -> Double.compare(variance[b], variance[a]));
+        int[] resultat = new int[taillePixels];
+        for (int p = 0; p < taillePixels; p++)
+            resultat[p] = ordre[p];
+        return resultat;
+    }
+
+    /**
+     * Copie les pixels de img dans l'ordre de ordrePixels à partir de
+     * dest[offset]
+     */
+    private void ordonner(Imagette img, byte[] dest, int offset) {
+        byte[] donnees = img.getDonnees();
+        int source = img.getOffset();
+        for (int p = 0; p < taillePixels; p++)
+            dest[offset + p] = donnees[source + ordrePixels[p]];
+    }
+
+    /**
+     * Distance au carré complète, dans l'ordre d'origine des pixels
+     * (recherche sans abandon précoce)
+     */
+    private long distanceCarree(Imagette img, Imagette trainImg) {
+        // parcours sequentiel des octets des deux imagettes
+        int n = img.getLignes() * img.getColonnes();
+        return Noyaux.INSTANCE.distanceCarree(img.getDonnees(), img.getOffset(),
+                trainImg.getDonnees(), trainImg.getOffset(), n);
+    }
+
+    /**
+     * Distance au carré entre la requête (pixels ordonnés) et l'imagette
+     * d'entraînement t, abandonnée dès qu'elle atteint seuil
+     *
+     * @return la distance au carré, ou une valeur partielle >= seuil
+     */
+    private long distanceCarreeBornee(byte[] requete, int t, long seuil) {
+        int offset = t * taillePixels;
+        long sum = 0;
+        for (int debut = 0; debut < taillePixels; debut += BLOC_ABANDON) {
+            int n = Math.min(BLOC_ABANDON, taillePixels - debut);
+            sum += Noyaux.INSTANCE.distanceCarree(requete, debut, pixelsOrdonnes, offset + debut, n);
+            if (sum >= seuil)
+                return sum;
+        }
+        return sum;
     }
 
     @Override
     public int predire(Imagette imgTest) {
-        PriorityQueue<ImagetteDistance> voisins = new PriorityQueue<>(k,
-                Comparator.comparingDouble(v -> -v.distance));
+        Recherche recherche = recherches.get();
+        if (recherche.voisins.cles.length != k) {
+            recherche.voisins = new Voisins(k);
+            recherche.parts = null;
+        }
+        Voisins voisins = recherche.voisins;
+        voisins.vider();
 
-        for (Imagette imgTrain : donneesEntrainement) {
-            double dist = calculerDistance(imgTrain, imgTest);
+        byte[] requete = recherche.requete;
+        if (abandonPrecoce || index != null)
+            ordonner(imgTest, requete, 0);
 
-            if (voisins.size() < k) {
-                voisins.add(new ImagetteDistance(imgTrain, dist));
-            } else if (dist < voisins.peek().distance) {
-                voisins.poll();
-                voisins.add(new ImagetteDistance(imgTrain, dist));
+        if (index != null) {
+            index.chercher(requete, voisins);
+        } else if (pool == null) {
+            rechercher(imgTest, requete, 0, donneesEntrainement.length, voisins);
+        } else {
+            if (recherche.parts == null || recherche.parts.length != threads) {
+                recherche.parts = new Voisins[threads];
+                for (int part = 0; part < threads; part++)
+                    recherche.parts[part] = new Voisins(k);
+                recherche.positions = new int[threads];
             }
+            pool.invoke(new RecherchePart(imgTest, requete, recherche.parts, 0, threads));
+            fusionner(recherche.parts, recherche.positions, voisins);
+        }
+
+        return voter(voisins.cles, voisins.taille, recherche.votes, recherche.departages);
+    }
+
+    /**
+     * Cherche les plus proches voisins de la requête parmi les imagettes
+     * d'entraînement [debut, fin[
+     */
+    private void rechercher(Imagette imgTest, byte[] requete, int debut, int fin, Voisins voisins) {
+        for (int t = debut; t < fin; t++) {
+            // un candidat n'entre que s'il est plus proche que le k-ième
+            // voisin : inutile de finir sa distance au-delà
+            long seuil = voisins.seuil(t);
+            long dist = abandonPrecoce ? distanceCarreeBornee(requete, t, seuil)
+                    : distanceCarree(donneesEntrainement[t], imgTest);
+            voisins.proposer(dist, t);
         }
+    }
 
-        Map<Integer, Integer> mapFrequence = new HashMap<>();
-        for (ImagetteDistance v : voisins) {
-            int etiq = v.imagette.getLabel();
-            mapFrequence.put(etiq, mapFrequence.getOrDefault(etiq, 0) + 1);
+    /**
+     * Recherche sur les parts [first, last[ de l'entraînement, chacune dans
+     * ses propres voisins
+     */
+    @SuppressWarnings("serial") // tâche jamais sérialisée
+    private class RecherchePart extends RecursiveAction {
+        private final Imagette imgTest;
+        private final byte[] requete;
+        private final Voisins[] parts;
+        private final int first;
+        private final int last;
+
+        RecherchePart(Imagette imgTest, byte[] requete, Voisins[] parts, int first, int last) {
+            this.imgTest = imgTest;
+            this.requete = requete;
+            this.parts = parts;
+            this.first = first;
+            this.last = last;
         }
 
-        int maxEtiquette = -1;
-        int maxCount = -1;
-        for (Map.Entry<Integer, Integer> entry : mapFrequence.entrySet()) {
-            if (entry.getValue() > maxCount) {
-                maxEtiquette = entry.getKey();
-                maxCount = entry.getValue();
+        @Override
+        protected void compute() {
+            if (last - first == 1) {
+                int n = donneesEntrainement.length;
+                int debut = (int) ((long) n * first / parts.length);
+                int fin = (int) ((long) n * last / parts.length);
+                parts[first].vider();
+                rechercher(imgTest, requete, debut, fin, parts[first]);
+                return;
             }
+
+            int mid = (first + last) >>> 1;
+            RecherchePart left = new RecherchePart(imgTest, requete, parts, first, mid);
+            left.fork();
+            new RecherchePart(imgTest, requete, parts, mid, last).compute();
+            left.join();
         }
+    }
 
-        return maxEtiquette;
+    /**
+     * Garde dans voisins les k plus proches des voisins des parts : ce sont
+     * les k plus petites clés, comme pour une recherche sur un seul thread
+     */
+    private static void fusionner(Voisins[] parts, int[] positions, Voisins voisins) {
+        for (int part = 0; part < parts.length; part++) {
+            parts[part].trier();
+            positions[part] = 0;
+        }
+        voisins.vider();
+        while (!voisins.plein()) {
+            int choisie = -1;
+            long min = Long.MAX_VALUE;
+            for (int part = 0; part < parts.length; part++) {
+                int pos = positions[part];
+                if (pos < parts[part].taille && parts[part].cles[pos] < min) {
+                    min = parts[part].cles[pos];
+                    choisie = part;
+                }
+            }
+            if (choisie < 0)
+                break;
+            positions[choisie]++;
+            voisins.cles[voisins.taille++] = min;
+        }
+    }
+
+    /**
+     * Prédictions par tuiles (voir la description de la classe) : mêmes
+     * résultats que predire
+     */
+    @Override
+    public int[] predireLot(Imagette[] imgs) {
+        return predireLot(imgs, new int[] { k })[0];
+    }
+
+    /**
+     * Prédictions d'un lot pour plusieurs valeurs de k, avec un seul calcul
+     * des distances. Pour chaque k, les voisins sont les k premiers des kmax
+     * plus proches : les prédictions sont celles de predire avec ce k.
+     *
+     * @param imgs    imagettes à classer
+     * @param valeursK valeurs de k (le k du constructeur ou de setK est ignoré)
+     * @return predictions[i][j] : étiquette de imgs[j] pour k = valeursK[i]
+     */
+    public int[][] predireLot(Imagette[] imgs, int[] valeursK) {
+        int kmax = 1;
+        for (int valeur : valeursK) {
+            if (valeur < 1)
+                throw new IllegalArgumentException("k invalide : " + valeur);
+            kmax = Math.max(kmax, valeur);
+        }
+        int[][] predictions = new int[valeursK.length][imgs.length];
+        int capacite = kmax;
+        int nbTuiles = (imgs.length + TUILE_REQUETES - 1) / TUILE_REQUETES;
+        IntStream.range(0, nbTuiles).parallel().forEach(tuile -> {
+            int debut = tuile * TUILE_REQUETES;
+            int nb = Math.min(TUILE_REQUETES, imgs.length - debut);
+            Lot lot = lots.get();
+            voisinsTuile(imgs, debut, nb, capacite, lot);
+
+            for (int q = 0; q < nb; q++) {
+                Voisins v = lot.voisins[q];
+                v.trier();
+                for (int i = 0; i < valeursK.length; i++) {
+                    int n = Math.min(valeursK[i], v.taille);
+                    predictions[i][debut + q] = voter(v.cles, n, lot.votes, lot.departages);
+                }
+            }
+        });
+        return predictions;
+    }
+
+    /**
+     * Tampons du calcul par lot, propres à chaque thread
+     *
+     * Classe statique, comme Recherche : la valeur du ThreadLocal ne
+     * référence pas ce classifieur.
+     */
+    private static final class Lot {
+        /**
+         * Requêtes du bloc en entiers dans l'ordre des pixels, complétées
+         * par des requêtes nulles jusqu'à un multiple de 4
+         */
+        final int[] requetes;
+        final long[] normesRequetes = new long[TUILE_REQUETES];
+        final byte[] requete;
+
+        /**
+         * Produits scalaires des requêtes du bloc avec la tuile
+         * d'entraînement : [imagette * TUILE_REQUETES + requête]
+         */
+        final long[] produits = new long[TUILE_REQUETES * TUILE_ENTRAINEMENT];
+        final Voisins[] voisins = new Voisins[TUILE_REQUETES];
+        final int[] votes;
+        final long[] departages;
+
+        Lot(int taillePixels, int nbEtiquettes) {
+            requetes = new int[TUILE_REQUETES * taillePixels];
+            requete = new byte[taillePixels];
+            votes = new int[nbEtiquettes];
+            departages = new long[nbEtiquettes];
+        }
+    }
+
+    private final ThreadLocal<Lot> lots = ThreadLocal.withInitial(this::nouveauLot);
+
+    private Lot nouveauLot() {
+        return new Lot(taillePixels, nbEtiquettes);
+    }
+
+    /**
+     * Cherche les capacite plus proches voisins des nb requêtes
+     * imgs[debut...] et les laisse dans lot.voisins. L'entraînement est
+     * parcouru par tuiles : chaque groupe de 4 requêtes passe sur toutes les
+     * imagettes de la tuile, qui restent dans le cache d'un groupe à
+     * l'autre.
+     */
+    private void voisinsTuile(Imagette[] imgs, int debut, int nb, int capacite, Lot lot) {
+        int nb4 = (nb + 3) & ~3;
+        int[] requetes = lot.requetes;
+        Arrays.fill(requetes, nb * taillePixels, nb4 * taillePixels, 0);
+        for (int q = 0; q < nb; q++) {
+            ordonner(imgs[debut + q], lot.requete, 0);
+            long norme = 0;
+            for (int p = 0; p < taillePixels; p++) {
+                int v = lot.requete[p] & 0xFF;
+                requetes[q * taillePixels + p] = v;
+                norme += v * v;
+            }
+            lot.normesRequetes[q] = norme;
+            if (lot.voisins[q] == null || lot.voisins[q].cles.length != capacite)
+                lot.voisins[q] = new Voisins(capacite);
+            lot.voisins[q].vider();
+        }
+
+        long[] produits = lot.produits;
+        for (int t0 = 0; t0 < donneesEntrainement.length; t0 += TUILE_ENTRAINEMENT) {
+            int t1 = Math.min(donneesEntrainement.length, t0 + TUILE_ENTRAINEMENT);
+            for (int q = 0; q < nb4; q += 4) {
+                for (int t = t0; t < t1; t++) {
+                    Noyaux.INSTANCE.produitsOctets4(requetes, q * taillePixels, pixelsOrdonnes, t * taillePixels,
+                            taillePixels, produits, (t - t0) * TUILE_REQUETES + q);
+                }
+            }
+            for (int q = 0; q < nb; q++) {
+                Voisins voisins = lot.voisins[q];
+                long normeRequete = lot.normesRequetes[q];
+                for (int t = t0; t < t1; t++)
+                    voisins.proposer(normeRequete + normes[t] - 2 * produits[(t - t0) * TUILE_REQUETES + q], t);
+            }
+        }
     }
 
-    private static class ImagetteDistance {
-        Imagette imagette;
-        double distance;
+    /**
+     * @param cles clés des n voisins (voir Voisins.cle)
+     * @return l'étiquette majoritaire parmi les voisins, les égalités étant
+     *         départagées selon departage
+     */
+    private int voter(long[] cles, int n, int[] votes, long[] departages) {
+        Arrays.fill(votes, 0);
+        Arrays.fill(departages, departage == Departage.PLUS_PROCHE_VOISIN ? Long.MAX_VALUE : 0);
+        for (int v = 0; v < n; v++) {
+            int etiq = donneesEntrainement[Voisins.indice(cles[v])].getLabel();
+            long distance = Voisins.distance(cles[v]);
+            votes[etiq]++;
+            if (departage == Departage.PLUS_PROCHE_VOISIN)
+                departages[etiq] = Math.min(departages[etiq], distance);
+            else if (departage == Departage.DISTANCE_CUMULEE)
+                departages[etiq] += distance;
+        }
 
-        ImagetteDistance(Imagette img, double dist) {
-            this.imagette = img;
-            this.distance = dist;
+        // à égalité de votes (puis de départage), la plus petite étiquette
+        int maxEtiquette = -1;
+        for (int etiq = 0; etiq < votes.length; etiq++) {
+            if (votes[etiq] == 0)
+                continue;
+            if (maxEtiquette < 0 || votes[etiq] > votes[maxEtiquette]
+                    || (votes[etiq] == votes[maxEtiquette] && departages[etiq] < departages[maxEtiquette]))
+                maxEtiquette = etiq;
         }
+        return maxEtiquette;
+    }
+
+    /**
+     * Change le nombre de voisins de predire et predireLot(imgs), sans
+     * reconstruire les pixels ordonnés ni l'index
+     *
+     * @param k nombre de voisins (au moins 1)
+     */
+    public void setK(int k) {
+        if (k < 1)
+            throw new IllegalArgumentException("k invalide : " + k);
+        this.k = k;
+    }
+
+    public int getK() {
+        return k;
+    }
+
+    /**
+     * Abandon précoce du calcul des distances (activé par défaut). Les
+     * prédictions sont les mêmes dans les deux cas ; le calcul complet sert
+     * de référence pour mesurer le gain.
+     *
+     * @param abandonPrecoce false pour calculer toutes les distances en entier
+     */
+    public void setAbandonPrecoce(boolean abandonPrecoce) {
+        this.abandonPrecoce = abandonPrecoce;
+    }
+
+    public boolean isAbandonPrecoce() {
+        return abandonPrecoce;
+    }
+
+    /**
+     * Nombre de threads d'une requête de predire : l'entraînement est réparti
+     * en autant de parts cherchées en parallèle (voir la description de la
+     * classe). Réduit la latence d'une requête isolée ; predireLot parallélise
+     * déjà entre les requêtes et n'est pas concerné.
+     *
+     * @param threads nombre de threads (1 = recherche sur le thread appelant)
+     */
+    public void setThreads(int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("nombre de threads invalide : " + threads);
+        if (pool != null)
+            pool.shutdown();
+        this.threads = threads;
+        this.pool = threads > 1 ? new ForkJoinPool(threads) : null;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * @return true si predire utilise un index des plus proches voisins
+     */
+    public boolean isIndexe() {
+        return index != null;
+    }
+
+    /**
+     * @return temps de construction de l'index en millisecondes (0 sans
+     *         index)
+     */
+    public long getTempsConstructionIndexMs() {
+        return index != null ? index.getTempsConstructionMs() : 0;
+    }
+
+    /**
+     * @return nombre de nœuds internes de l'index (0 sans index)
+     */
+    public int getNoeudsIndex() {
+        return index != null ? index.getNbNoeuds() : 0;
+    }
+
+    /**
+     * @return profondeur de l'index, feuilles comprises (0 sans index)
+     */
+    public int getProfondeurIndex() {
+        return index != null ? index.getProfondeur() : 0;
+    }
+
+    /**
+     * Nombre moyen de distances calculées par requête dans l'index depuis sa
+     * construction ou reinitialiserStatistiquesIndex (le parcours complet en
+     * calcule autant que d'imagettes d'entraînement)
+     */
+    public double getDistancesParRequete() {
+        if (index == null || index.getRequetes() == 0)
+            return 0;
+        return (double) index.getDistancesCalculees() / index.getRequetes();
+    }
+
+    /**
+     * @return part moyenne de l'entraînement écartée par l'index sans calcul
+     *         de distance, entre 0.0 et 1.0
+     */
+    public double getTauxElagageIndex() {
+        if (index == null || index.getRequetes() == 0 || donneesEntrainement.length == 0)
+            return 0;
+        return 1 - getDistancesParRequete() / donneesEntrainement.length;
+    }
+
+    public void reinitialiserStatistiquesIndex() {
+        if (index != null)
+            index.reinitialiserStatistiques();
+    }
+
+    /**
+     * @param departage règle de choix entre étiquettes ayant autant de votes
+     *                  (PLUS_PETITE_ETIQUETTE par défaut)
+     */
+    public void setDepartage(Departage departage) {
+        this.departage = departage;
+    }
+
+    public Departage getDepartage() {
+        return departage;
     }
 }
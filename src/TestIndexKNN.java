@@ -0,0 +1,91 @@
+import MLP.*;
+import java.io.IOException;
+
+/**
+ * Index des plus proches voisins du k-NN (arbre de points de vue) sur MNIST
+ * et Fashion-MNIST
+ *
+ * Pour chaque jeu : temps de construction et forme de l'index (construit
+ * une seule fois, k changé par setK), puis pour chaque k le temps moyen
+ * d'une requête de predire sans et avec index, le nombre moyen de
+ * distances calculées et la part de l'entraînement écartée par l'index.
+ * Les prédictions des deux recherches sont comparées.
+ *
+ * Usage: java TestIndexKNN [nombre de requêtes]
+ */
+public class TestIndexKNN {
+
+    public static final String MNIST_DIR = "data/";
+    public static final String FASHION_DIR = "fashion/";
+    public static final int MAX_TRAIN = 60000;
+    public static final int MAX_TEST = 10000;
+    public static final int REQUETES = 1000;
+    public static final int[] VALEURS_K = { 1, 3, 5, 10 };
+
+    public static void main(String[] args) {
+        java.util.Locale.setDefault(java.util.Locale.US);
+        int requetes = args.length > 0 ? Integer.parseInt(args[0]) : REQUETES;
+        System.out.println("=".repeat(60));
+        System.out.println("        INDEX DES PLUS PROCHES VOISINS (VP-TREE)");
+        System.out.println("=".repeat(60));
+        comparer("MNIST", MNIST_DIR, requetes);
+        comparer("Fashion-MNIST", FASHION_DIR, requetes);
+    }
+
+    private static void comparer(String nom, String dir, int requetes) {
+        Imagette[] trainData, testData;
+        try {
+            System.out.printf("%n>>> Chargement de %s...%n", nom);
+            trainData = chargerDonnees(dir, true, MAX_TRAIN);
+            testData = chargerDonnees(dir, false, Math.min(MAX_TEST, requetes));
+        } catch (IOException e) {
+            System.out.println("   [INFO] " + nom + " non disponible : " + e.getMessage());
+            return;
+        }
+        System.out.printf("   Train: %d images, Requêtes: %d%n", trainData.length, testData.length);
+
+        kNN lineaire = new kNN(trainData, VALEURS_K[0]);
+        kNN indexe = new kNN(trainData, VALEURS_K[0], true);
+        System.out.printf("   Index : construction %dms, %d nœuds, profondeur %d%n",
+                indexe.getTempsConstructionIndexMs(), indexe.getNoeudsIndex(), indexe.getProfondeurIndex());
+
+        for (int k : VALEURS_K) {
+            lineaire.setK(k);
+            indexe.setK(k);
+            indexe.reinitialiserStatistiquesIndex();
+
+            long tempsLineaire = 0, tempsIndexe = 0;
+            int differences = 0, corrects = 0;
+            for (Imagette img : testData) {
+                long debut = System.nanoTime();
+                int attendu = lineaire.predire(img);
+                long milieu = System.nanoTime();
+                int predit = indexe.predire(img);
+                long fin = System.nanoTime();
+                tempsLineaire += milieu - debut;
+                tempsIndexe += fin - milieu;
+                if (predit != attendu)
+                    differences++;
+                if (predit == img.getLabel())
+                    corrects++;
+            }
+            System.out.printf("   k=%2d : sans index %.2fms, avec index %.2fms par requête, "
+                    + "%.0f distances (%.1f%% écartées), précision %.2f%%, différences %d%n",
+                    k, tempsLineaire / 1e6 / testData.length, tempsIndexe / 1e6 / testData.length,
+                    indexe.getDistancesParRequete(), indexe.getTauxElagageIndex() * 100,
+                    100.0 * corrects / testData.length, differences);
+        }
+    }
+
+    private static Imagette[] chargerDonnees(String dir, boolean train, int max) throws IOException {
+        String imageFile, labelFile;
+        if (train) {
+            imageFile = dir + "train-images.idx3-ubyte";
+            labelFile = dir + "train-labels.idx1-ubyte";
+        } else {
+            imageFile = dir + "t10k-images.idx3-ubyte";
+            labelFile = dir + "t10k-labels.idx1-ubyte";
+        }
+        return new ChargementMNIST().charger(imageFile, labelFile, max);
+    }
+}
@@ -7,8 +7,14 @@ import java.io.IOException;
 public class TestKNN {
 
     public static final String MNIST_DIR = "data/";
-    public static final int MAX_TRAIN = 10000; // Réduit car k-NN est lent
-    public static final int MAX_TEST = 1000;
+    public static final int MAX_TRAIN = 60000;
+    public static final int MAX_TEST = 10000;
+
+    /**
+     * Modèle MLP de la comparaison, réutilisé s'il a déjà été appris sur le
+     * même nombre d'imagettes (voir fichierModeleMlp)
+     */
+    public static final String MODELE_MLP = "mlp_784-128-10";
 
     public static void main(String[] args) {
         try {
@@ -29,38 +35,59 @@ public class TestKNN {
 
             int[] valuesK = { 1, 3, 5, 7, 10 };
 
-            for (int k : valuesK) {
-                System.out.printf("\nk = %d : ", k);
-                long startTime = System.currentTimeMillis();
+            // Distances calculées une seule fois pour toutes les valeurs de k
+            long startTime = System.currentTimeMillis();
+            kNN knn = new kNN(trainData, valuesK[valuesK.length - 1]);
+            int[][] predictions = knn.predireLot(testData, valuesK);
+            long timeMs = System.currentTimeMillis() - startTime;
+            System.out.printf("Distances et voisins de tous les k : %dms%n", timeMs);
 
-                kNN knn = new kNN(trainData, k);
-                Statistiques stats = new Statistiques(knn, testData);
+            for (int i = 0; i < valuesK.length; i++) {
+                Statistiques stats = new Statistiques(predictions[i], testData);
                 double precision = stats.calculerPrecision();
+                System.out.printf("\nk = %d : Précision = %.2f%%%n", valuesK[i], precision * 100);
 
-                long timeMs = System.currentTimeMillis() - startTime;
-                System.out.printf("Précision = %.2f%% (temps: %dms)%n", precision * 100, timeMs);
-
-                // Sauvegarde CSV
-                saveToCSV(k, precision, timeMs);
+                // Sauvegarde CSV (temps commun à tous les k)
+                saveToCSV(valuesK[i], precision, timeMs);
             }
 
+            // Latence d'une requête isolée, sur un thread puis répartie
+            System.out.println("\n>>> Latence d'une requête (k = 3) :");
+            kNN knnLatence = new kNN(trainData, 3);
+            int threads = Runtime.getRuntime().availableProcessors();
+            mesurerLatence(knnLatence, testData, 1);
+            if (threads > 1)
+                mesurerLatence(knnLatence, testData, threads);
+
             System.out.println("\n" + "=".repeat(60));
             System.out.println("                 COMPARAISON MLP vs k-NN");
             System.out.println("=".repeat(60));
 
             System.out.println("\n>>> Test MLP avec même quantité de données...");
 
-            // Test MLP pour comparaison directe
-            int[] architecture = { 784, 128, 10 };
-            MLPClassification mlp = new MLPClassification(
-                    trainData, architecture, 0.5, new Sigmoid(), true, false);
-
+            // Test MLP pour comparaison directe (modèle enregistré après le
+            // premier apprentissage, rechargé aux exécutions suivantes sur
+            // le même nombre d'imagettes)
+            String modele = fichierModeleMlp(trainData.length);
+            MLPClassification mlp;
             long mlpStart = System.currentTimeMillis();
-            mlp.entrainer(20, testData);
-            long mlpTime = System.currentTimeMillis() - mlpStart;
+            if (new java.io.File(modele).exists()) {
+                mlp = MLPClassification.charger(modele);
+                System.out.printf("   Modèle chargé depuis %s en %dms%n", modele,
+                        System.currentTimeMillis() - mlpStart);
+            } else {
+                int[] architecture = { 784, 128, 10 };
+                mlp = new MLPClassification(trainData, architecture, 0.5, new Sigmoid(), true, false);
+                mlp.entrainer(20, testData);
+                System.out.printf("   Apprentissage en %dms%n", System.currentTimeMillis() - mlpStart);
+                mlp.sauvegarder(modele);
+            }
+            long evaluationStart = System.currentTimeMillis();
+            double mlpPrecision = mlp.calculerPrecision(testData);
+            long evaluationTime = System.currentTimeMillis() - evaluationStart;
 
-            System.out.printf("\nMLP [784-128-10]: Précision = %.2f%% (temps: %dms)%n",
-                    mlp.getFinalTestAccuracy() * 100, mlpTime);
+            System.out.printf("\nMLP [784-128-10]: Précision = %.2f%% (évaluation: %dms)%n",
+                    mlpPrecision * 100, evaluationTime);
 
             System.out.println("\n" + "-".repeat(60));
             System.out.println("CONCLUSION:");
@@ -74,6 +101,31 @@ public class TestKNN {
         }
     }
 
+    /**
+     * @return fichier du modèle MLP appris sur nbEntrainement imagettes : un
+     *         modèle appris sur d'autres données n'est pas réutilisé
+     */
+    private static String fichierModeleMlp(int nbEntrainement) {
+        return MODELE_MLP + "_" + nbEntrainement + ".bin";
+    }
+
+    private static final int REQUETES_LATENCE = 200;
+
+    private static void mesurerLatence(kNN knn, Imagette[] testData, int threads) {
+        knn.setThreads(threads);
+        int n = Math.min(REQUETES_LATENCE, testData.length);
+        long[] latences = new long[n];
+        for (int i = 0; i < n; i++) {
+            long debut = System.nanoTime();
+            knn.predire(testData[i]);
+            latences[i] = System.nanoTime() - debut;
+        }
+        java.util.Arrays.sort(latences);
+        System.out.printf("   %d thread(s) : p50 = %.2fms, p99 = %.2fms%n", threads,
+                latences[n / 2] / 1e6, latences[n * 99 / 100] / 1e6);
+        knn.setThreads(1);
+    }
+
     private static void saveToCSV(int k, double precision, long timeMs) {
         try (java.io.FileWriter fw = new java.io.FileWriter("resultats_knn.csv", true);
                 java.io.PrintWriter pw = new java.io.PrintWriter(fw)) {
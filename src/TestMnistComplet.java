@@ -2,6 +2,7 @@ import MLP.*;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.util.Arrays;
 
 /**
  * Tests MLP sur MNIST - Étude de l'influence des paramètres
@@ -12,6 +13,21 @@ import java.io.PrintWriter;
  * 3. Taux d'apprentissage
  * 4. Évolution du taux d'apprentissage (decay)
  * 5. Données mélangées ou non
+ * 8. ReLU et sortie softmax (entropie croisée) contre Sigmoid
+ *
+ * Chaque configuration apprend sur l'entraînement moins ses VALIDATION
+ * dernières imagettes, s'arrête après PATIENCE époques sans progrès de la
+ * précision sur ces imagettes de validation (au plus EPOCHS) et garde son
+ * meilleur modèle ; le temps pour atteindre PRECISION_CIBLE en validation
+ * est enregistré dans resultats_mlp.csv. Le test ne sert qu'à la mesure
+ * finale.
+ * Le modèle de chaque configuration est enregistré dans modele_*.bin
+ * (MLPClassification.charger pour le réutiliser sans apprentissage).
+ *
+ * Chaque configuration enregistre un point de reprise par époque dans
+ * reprise_*.bin : relancé après une interruption, le programme reprend les
+ * configurations terminées et en cours là où elles en étaient (supprimer
+ * ces fichiers pour tout recommencer).
  */
 public class TestMnistComplet {
 
@@ -20,6 +36,14 @@ public class TestMnistComplet {
     public static final int MAX_TRAIN = 60000;
     public static final int MAX_TEST = 10000;
     public static final int EPOCHS = 30;
+    public static final int PATIENCE = 5;
+
+    /**
+     * Dernières imagettes d'entraînement réservées à la validation (arrêt
+     * anticipé et choix du meilleur modèle) : le test reste indépendant
+     */
+    public static final int VALIDATION = 5000;
+    public static final double PRECISION_CIBLE = 0.95;
 
     public static void main(String[] args) {
         java.util.Locale.setDefault(java.util.Locale.US);
@@ -36,7 +60,8 @@ public class TestMnistComplet {
 
             // Fichier CSV pour les résultats
             PrintWriter csv = new PrintWriter(new FileWriter("resultats_mlp.csv"));
-            csv.println("Test,Architecture,LearningRate,Shuffle,Decay,Epochs,TrainAcc,TestAcc,TimeMs");
+            csv.println("Test,Architecture,LearningRate,Shuffle,Decay,Epochs,TrainAcc,TestAcc,TimeMs,"
+                    + "BestEpoch,TargetEpoch,TimeToTargetMs");
 
             // ============================================================
             // TEST 1: Perceptron sans couche cachée (baseline)
@@ -121,6 +146,16 @@ public class TestMnistComplet {
             System.out.println("\n>>> [784, 256, 128, 10], lr=0.8, shuffle=true, decay=true");
             testerConfig("T7_optimal", new int[] { 784, 256, 128, 10 }, 0.8, true, true, trainData, testData, csv);
 
+            // ============================================================
+            // TEST 8: ReLU + softmax / entropie croisée
+            // ============================================================
+            System.out.println("\n" + "=".repeat(70));
+            System.out.println("TEST 8: RELU ET SORTIE SOFTMAX");
+            System.out.println("=".repeat(70));
+            System.out.println("\n>>> [784, 256, 128, 10], ReLU, softmax, lr=0.02, shuffle=true");
+            testerConfig("T8_relu_softmax", new int[] { 784, 256, 128, 10 }, 0.02, true, false, true,
+                    trainData, testData, csv);
+
             // ============================================================
             // TESTS FASHION-MNIST (si disponible)
             // ============================================================
@@ -191,27 +226,67 @@ public class TestMnistComplet {
             boolean shuffle, boolean decay,
             Imagette[] trainData, Imagette[] testData,
             PrintWriter csv) {
+        testerConfig(testName, layers, lr, shuffle, decay, false, trainData, testData, csv);
+    }
 
-        MLPClassification mlp = new MLPClassification(
-                trainData, layers, lr, new Sigmoid(), shuffle, decay);
+    /**
+     * @param reluSoftmax couches ReLU et sortie softmax (au lieu de Sigmoid
+     *                    et de l'erreur quadratique)
+     */
+    private static void testerConfig(String testName, int[] layers, double lr,
+            boolean shuffle, boolean decay, boolean reluSoftmax,
+            Imagette[] trainData, Imagette[] testData,
+            PrintWriter csv) {
 
+        Imagette[] validation = Arrays.copyOfRange(trainData, trainData.length - VALIDATION, trainData.length);
+        trainData = Arrays.copyOf(trainData, trainData.length - VALIDATION);
+
+        MLPClassification mlp;
+        if (reluSoftmax) {
+            TransferFunction[] fonctions = new TransferFunction[layers.length - 1];
+            Arrays.fill(fonctions, new ReLU());
+            mlp = new MLPClassification(trainData, layers, lr, fonctions, shuffle, decay);
+            mlp.setSoftmax(true);
+        } else {
+            mlp = new MLPClassification(
+                    trainData, layers, lr, new Sigmoid(), shuffle, decay);
+        }
+
+        mlp.setValidation(validation);
+        mlp.setPatience(PATIENCE);
+        mlp.setRestaurerMeilleur(true);
+        mlp.setPrecisionCible(PRECISION_CIBLE, false);
+        mlp.setPointsReprise("reprise_" + testName + ".bin", 1);
         mlp.entrainer(EPOCHS, testData);
 
         double trainAcc = mlp.getFinalTrainAccuracy() * 100;
         double testAcc = mlp.getFinalTestAccuracy() * 100;
         long timeMs = mlp.getTrainingTimeMs();
 
-        System.out.printf("\n   RÉSULTAT: Train=%.2f%%, Test=%.2f%%, Temps=%dms%n", trainAcc, testAcc, timeMs);
+        int epoques = mlp.getTrainErrors().size();
+
+        System.out.printf("\n   RÉSULTAT: Train=%.2f%%, Test=%.2f%%, Temps=%dms, Époques=%d (meilleure: %d)%n",
+                trainAcc, testAcc, timeMs, epoques, mlp.getMeilleureEpoque());
+        if (mlp.getEpoquePrecisionCible() > 0) {
+            System.out.printf("   %.0f%% atteint à l'époque %d en %dms%n", PRECISION_CIBLE * 100,
+                    mlp.getEpoquePrecisionCible(), mlp.getTempsPrecisionCibleMs());
+        }
 
         // Sauvegarder dans CSV
         String archStr = arrayToString(layers);
-        csv.printf("%s,%s,%.2f,%b,%b,%d,%.4f,%.4f,%d%n",
-                testName, archStr, lr, shuffle, decay, EPOCHS,
-                mlp.getFinalTrainAccuracy(), mlp.getFinalTestAccuracy(), timeMs);
+        csv.printf("%s,%s,%.2f,%b,%b,%d,%.4f,%.4f,%d,%d,%d,%d%n",
+                testName, archStr, lr, shuffle, decay, epoques,
+                mlp.getFinalTrainAccuracy(), mlp.getFinalTestAccuracy(), timeMs,
+                mlp.getMeilleureEpoque(), mlp.getEpoquePrecisionCible(), mlp.getTempsPrecisionCibleMs());
         csv.flush();
 
-        // Sauvegarder courbes d'apprentissage
+        // Sauvegarder courbes d'apprentissage et modèle appris
         sauvegarderCourbes(testName, mlp);
+        try {
+            mlp.sauvegarder("modele_" + testName + ".bin");
+        } catch (IOException e) {
+            System.err.println("Erreur sauvegarde du modèle: " + e.getMessage());
+        }
     }
 
     private static void sauvegarderCourbes(String testName, MLPClassification mlp) {
@@ -219,11 +294,16 @@ public class TestMnistComplet {
         try (PrintWriter pw = new PrintWriter(new FileWriter(filename))) {
             pw.println("Epoch,TrainError,TrainAcc,TestAcc");
             for (int i = 0; i < mlp.getTrainErrors().size(); i++) {
-                pw.printf("%d,%.6f,%.4f,%.4f%n",
+                pw.printf("%d,%.6f,%.4f,",
                         i + 1,
                         mlp.getTrainErrors().get(i),
-                        mlp.getTrainAccuracies().get(i),
-                        i < mlp.getTestAccuracies().size() ? mlp.getTestAccuracies().get(i) : 0.0);
+                        mlp.getTrainAccuracies().get(i));
+                // époque non évaluée sur le test (voir setEvaluationInterval) : case vide
+                double testAcc = i < mlp.getTestAccuracies().size() ? mlp.getTestAccuracies().get(i) : 0.0;
+                if (!Double.isNaN(testAcc)) {
+                    pw.printf("%.4f", testAcc);
+                }
+                pw.println();
             }
         } catch (IOException e) {
             System.err.println("Erreur sauvegarde: " + e.getMessage());
@@ -0,0 +1,87 @@
+import MLP.*;
+import java.io.IOException;
+
+/**
+ * Comparaison des optimiseurs du MLP (SGD, Momentum, Nesterov, Adam) sur
+ * MNIST et Fashion-MNIST
+ *
+ * Même réseau [784, 128, 10] (Sigmoid), même graine et lots de 16 pour
+ * chaque optimiseur, chacun avec un taux d'apprentissage adapté. On affiche
+ * la précision finale sur le test, le temps d'apprentissage et la première
+ * époque atteignant la précision cible.
+ *
+ * Usage: java TestOptimiseurs [epochs] [cible en %]
+ */
+public class TestOptimiseurs {
+
+    public static final String MNIST_DIR = "data/";
+    public static final String FASHION_DIR = "fashion/";
+    public static final int MAX_TRAIN = 60000;
+    public static final int MAX_TEST = 10000;
+    public static final int EPOCHS = 10;
+    public static final int TAILLE_LOT = 16;
+    public static final int[] ARCHITECTURE = { 784, 128, 10 };
+
+    public static void main(String[] args) {
+        java.util.Locale.setDefault(java.util.Locale.US);
+        int epochs = args.length > 0 ? Integer.parseInt(args[0]) : EPOCHS;
+        double cible = args.length > 1 ? Double.parseDouble(args[1]) / 100 : 0.9;
+        System.out.println("=".repeat(60));
+        System.out.println("      OPTIMISEURS DU MLP (SGD / MOMENTUM / NESTEROV / ADAM)");
+        System.out.println("=".repeat(60));
+        comparer("MNIST", MNIST_DIR, epochs, cible);
+        comparer("Fashion-MNIST", FASHION_DIR, epochs, cible);
+    }
+
+    private static void comparer(String nom, String dir, int epochs, double cible) {
+        Imagette[] trainData, testData;
+        try {
+            System.out.printf("%n>>> Chargement de %s...%n", nom);
+            trainData = chargerDonnees(dir, true, MAX_TRAIN);
+            testData = chargerDonnees(dir, false, MAX_TEST);
+        } catch (IOException e) {
+            System.out.println("   [INFO] " + nom + " non disponible : " + e.getMessage());
+            return;
+        }
+        System.out.printf("   Train: %d images, Test: %d images, Epochs: %d, Cible: %.1f%%%n",
+                trainData.length, testData.length, epochs, cible * 100);
+
+        // gradient moyen sur le lot : taux de SGD multiplié par la taille du lot
+        tester("SGD", new SGD(), 4.0, trainData, testData, epochs, cible);
+        tester("Momentum", new Momentum(0.9), 0.4, trainData, testData, epochs, cible);
+        tester("Nesterov", new Nesterov(0.9), 0.4, trainData, testData, epochs, cible);
+        tester("Adam", new Adam(), 0.001, trainData, testData, epochs, cible);
+    }
+
+    private static void tester(String nom, Optimizer optimizer, double lr,
+            Imagette[] trainData, Imagette[] testData, int epochs, double cible) {
+        System.out.printf("%n>>> %s (lr=%s)%n", nom, lr);
+        MLPClassification mlp = new MLPClassification(
+                trainData, ARCHITECTURE, lr, new Sigmoid(), true, false);
+        mlp.setSeed(42);
+        mlp.setBatchSize(TAILLE_LOT);
+        mlp.setOptimizer(optimizer);
+        mlp.entrainer(epochs, testData);
+
+        int epoqueCible = -1;
+        for (int i = 0; i < mlp.getTestAccuracies().size() && epoqueCible < 0; i++) {
+            if (mlp.getTestAccuracies().get(i) >= cible)
+                epoqueCible = i + 1;
+        }
+        System.out.printf("   %s: Test=%.2f%%, Temps=%dms, Cible atteinte: %s%n",
+                nom, mlp.getFinalTestAccuracy() * 100, mlp.getTrainingTimeMs(),
+                epoqueCible > 0 ? "époque " + epoqueCible : "non");
+    }
+
+    private static Imagette[] chargerDonnees(String dir, boolean train, int max) throws IOException {
+        String imageFile, labelFile;
+        if (train) {
+            imageFile = dir + "train-images.idx3-ubyte";
+            labelFile = dir + "train-labels.idx1-ubyte";
+        } else {
+            imageFile = dir + "t10k-images.idx3-ubyte";
+            labelFile = dir + "t10k-labels.idx1-ubyte";
+        }
+        return new ChargementMNIST().charger(imageFile, labelFile, max);
+    }
+}
@@ -0,0 +1,84 @@
+import MLP.*;
+import java.io.IOException;
+
+/**
+ * Comparaison des modes d'apprentissage du MLP sur MNIST :
+ * - séquentiel (backPropagate exemple par exemple, 1 thread)
+ * - Hogwild (mises à jour asynchrones sans verrou, n threads)
+ * - parallélisme de données par lots (réduction déterministe, n threads)
+ *
+ * Usage: java TestParallelisme [threads]
+ */
+public class TestParallelisme {
+
+    public static final String MNIST_DIR = "data/";
+    public static final int MAX_TRAIN = 60000;
+    public static final int MAX_TEST = 10000;
+    public static final int EPOCHS = 5;
+    public static final int[] ARCHITECTURE = { 784, 128, 10 };
+
+    public static void main(String[] args) {
+        java.util.Locale.setDefault(java.util.Locale.US);
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        try {
+            System.out.println("=".repeat(60));
+            System.out.println("      MODES D'APPRENTISSAGE PARALLÈLES DU MLP");
+            System.out.println("=".repeat(60));
+
+            System.out.println("\n>>> Chargement des données MNIST...");
+            Imagette[] trainData = chargerDonnees(MNIST_DIR, true, MAX_TRAIN);
+            Imagette[] testData = chargerDonnees(MNIST_DIR, false, MAX_TEST);
+            System.out.printf("   Train: %d images, Test: %d images, Threads: %d%n",
+                    trainData.length, testData.length, threads);
+
+            System.out.println("\n>>> Séquentiel (1 thread)");
+            MLPClassification sequentiel = creer(trainData, 0.5);
+            sequentiel.entrainer(EPOCHS, testData);
+            afficher("Séquentiel", sequentiel, sequentiel.getTrainingTimeMs());
+
+            System.out.printf("%n>>> Hogwild (%d threads)%n", threads);
+            MLPClassification hogwild = creer(trainData, 0.5);
+            hogwild.setThreads(threads);
+            hogwild.setHogwild(true);
+            hogwild.entrainer(EPOCHS, testData);
+            afficher("Hogwild", hogwild, sequentiel.getTrainingTimeMs());
+
+            // gradient moyen sur le lot : taux multiplié par la taille du lot
+            System.out.printf("%n>>> Lots de 16, réduction déterministe (%d threads)%n", threads);
+            MLPClassification lots = creer(trainData, 4.0);
+            lots.setBatchSize(16);
+            lots.setThreads(threads);
+            lots.entrainer(EPOCHS, testData);
+            afficher("Lots parallèles", lots, sequentiel.getTrainingTimeMs());
+
+        } catch (IOException e) {
+            System.err.println("Erreur: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private static MLPClassification creer(Imagette[] trainData, double lr) {
+        MLPClassification mlp = new MLPClassification(
+                trainData, ARCHITECTURE, lr, new Sigmoid(), true, false);
+        mlp.setSeed(42);
+        return mlp;
+    }
+
+    private static void afficher(String mode, MLPClassification mlp, long tempsReference) {
+        long timeMs = mlp.getTrainingTimeMs();
+        System.out.printf("   %s: Test=%.2f%%, Temps=%dms, Accélération=x%.2f%n",
+                mode, mlp.getFinalTestAccuracy() * 100, timeMs, (double) tempsReference / timeMs);
+    }
+
+    private static Imagette[] chargerDonnees(String dir, boolean train, int max) throws IOException {
+        String imageFile, labelFile;
+        if (train) {
+            imageFile = dir + "train-images.idx3-ubyte";
+            labelFile = dir + "train-labels.idx1-ubyte";
+        } else {
+            imageFile = dir + "t10k-images.idx3-ubyte";
+            labelFile = dir + "t10k-labels.idx1-ubyte";
+        }
+        return new ChargementMNIST().charger(imageFile, labelFile, max);
+    }
+}
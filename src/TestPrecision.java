@@ -0,0 +1,80 @@
+import MLP.*;
+import java.io.IOException;
+
+/**
+ * Comparaison des précisions de calcul du MLP sur MNIST :
+ * - double (MLP)
+ * - float (MLPFloat)
+ * - float avec produits scalaires sommés en double
+ *
+ * Chaque précision part des mêmes poids initiaux (même graine) et est
+ * mesurée exemple par exemple puis par lots de 16. On affiche le débit
+ * d'apprentissage (exemples par seconde) et la précision finale sur le test.
+ *
+ * Usage: java TestPrecision [epochs]
+ */
+public class TestPrecision {
+
+    public static final String MNIST_DIR = "data/";
+    public static final int MAX_TRAIN = 60000;
+    public static final int MAX_TEST = 10000;
+    public static final int EPOCHS = 5;
+    public static final int[] ARCHITECTURE = { 784, 128, 10 };
+
+    public static void main(String[] args) {
+        java.util.Locale.setDefault(java.util.Locale.US);
+        int epochs = args.length > 0 ? Integer.parseInt(args[0]) : EPOCHS;
+        try {
+            System.out.println("=".repeat(60));
+            System.out.println("      PRÉCISION DES CALCULS DU MLP (DOUBLE / FLOAT)");
+            System.out.println("=".repeat(60));
+
+            System.out.println("\n>>> Chargement des données MNIST...");
+            Imagette[] trainData = chargerDonnees(MNIST_DIR, true, MAX_TRAIN);
+            Imagette[] testData = chargerDonnees(MNIST_DIR, false, MAX_TEST);
+            System.out.printf("   Train: %d images, Test: %d images, Epochs: %d%n",
+                    trainData.length, testData.length, epochs);
+
+            for (int batchSize : new int[] { 1, 16 }) {
+                // gradient moyen sur le lot : taux multiplié par la taille du lot
+                double lr = batchSize > 1 ? 4.0 : 0.5;
+                System.out.printf("%n>>> %s%n", batchSize > 1 ? "Lots de " + batchSize : "Exemple par exemple");
+                long tempsReference = 0;
+                for (Precision precision : Precision.values()) {
+                    MLPClassification mlp = new MLPClassification(
+                            trainData, ARCHITECTURE, lr, new Sigmoid(), true, false);
+                    mlp.setSeed(42);
+                    mlp.setPrecision(precision);
+                    mlp.setBatchSize(batchSize);
+                    mlp.entrainer(epochs, testData);
+                    if (precision == Precision.DOUBLE)
+                        tempsReference = mlp.getTrainingTimeMs();
+                    afficher(precision, mlp, (long) trainData.length * epochs, tempsReference);
+                }
+            }
+
+        } catch (IOException e) {
+            System.err.println("Erreur: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private static void afficher(Precision precision, MLPClassification mlp, long exemples, long tempsReference) {
+        long timeMs = Math.max(1, mlp.getTrainingTimeMs());
+        System.out.printf("   %-25s Test=%.2f%%, Temps=%dms, Débit=%.0f ex/s, Accélération=x%.2f%n",
+                precision, mlp.getFinalTestAccuracy() * 100, timeMs, exemples * 1000.0 / timeMs,
+                (double) tempsReference / timeMs);
+    }
+
+    private static Imagette[] chargerDonnees(String dir, boolean train, int max) throws IOException {
+        String imageFile, labelFile;
+        if (train) {
+            imageFile = dir + "train-images.idx3-ubyte";
+            labelFile = dir + "train-labels.idx1-ubyte";
+        } else {
+            imageFile = dir + "t10k-images.idx3-ubyte";
+            labelFile = dir + "t10k-labels.idx1-ubyte";
+        }
+        return new ChargementMNIST().charger(imageFile, labelFile, max);
+    }
+}